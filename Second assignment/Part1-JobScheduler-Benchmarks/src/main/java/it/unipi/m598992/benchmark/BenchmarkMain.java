@@ -0,0 +1,24 @@
+package it.unipi.m598992.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: runs the JMH benchmarks selected by the arguments (all of them by default) and
+ * writes the results in JSON, in jmh-result.json unless another file is given with -rff, so that the results of two
+ * commits can be compared.
+ * Any JMH option can be passed, e.g. {@code java -jar target/benchmarks.jar EndToEnd -p scale=1 -rff before.json}.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        if (!arguments.contains("-rf")) {
+            arguments.addAll(List.of("-rf", "json"));
+        }
+        if (!arguments.contains("-rff")) {
+            arguments.addAll(List.of("-rff", "jmh-result.json"));
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,79 @@
+package it.unipi.m598992.benchmark;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.collect.InMemoryCollectStrategy;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordReaderJob;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.CollectBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Time taken to count the words of each 'CIAO' key of the pairs of the bundled books, already in memory: with the
+ * groupingBy collector of the original collect phase, and with the in-memory collect buffer used by the JobScheduler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectBenchmark {
+
+    /**
+     * Number of times the pairs of the bundled books are repeated.
+     */
+    @Param({"1", "16"})
+    public int copies;
+
+    private List<Pair<String, String>> pairs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Pair<String, String>> bundledPairs = new ArrayList<>();
+        for (Path book : Corpus.txtFiles(Corpus.bundledDirectory())) {
+            try (Stream<Pair<String, String>> bookPairs = new CiaoWordReaderJob(book).execute()) {
+                bookPairs.forEach(bundledPairs::add);
+            }
+        }
+        pairs = new ArrayList<>(bundledPairs.size() * copies);
+        for (int i = 0; i < copies; i++) {
+            pairs.addAll(bundledPairs);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Long> groupingBy() {
+        return pairs.stream().collect(Collectors.groupingBy(Pair::getKey, Collectors.counting()));
+    }
+
+    @Benchmark
+    public long collectBuffer() {
+        try (CollectBuffer<String, String, Long> collectBuffer =
+                     new InMemoryCollectStrategy<String, String, Long>().open(AggregationStrategy.counting())) {
+            pairs.forEach(pair -> collectBuffer.accumulate(pair.getKey(), pair.getValue()));
+            try (Stream<Pair<String, Long>> collectOutput = collectBuffer.drain()) {
+                return collectOutput.count();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package it.unipi.m598992.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * The documents read by the benchmarks: the books bundled with the JobScheduler (its Books resources, or the directory
+ * given by the corpus.directory system property) or a synthetic corpus scaled up from them.
+ * A synthetic corpus of scale n is made of n documents, each with all the words of the bundled books in a different
+ * (but reproducible) order, so it keeps their vocabulary and word frequencies.
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+    private static final int WORDS_PER_LINE = 12;
+
+    /**
+     * 1 for the bundled books, otherwise the number of documents of the synthetic corpus.
+     */
+    @Param({"1", "64", "512"})
+    public int scale;
+
+    private Path directory;
+    private boolean generated;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path bundledDirectory = bundledDirectory();
+        if (scale == 1) {
+            directory = bundledDirectory;
+            return;
+        }
+        List<String> words = new ArrayList<>();
+        for (Path book : txtFiles(bundledDirectory)) {
+            for (String word : Files.readString(book, StandardCharsets.UTF_8).split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        directory = Files.createTempDirectory("corpus-" + scale + "-");
+        generated = true;
+        for (int document = 0; document < scale; document++) {
+            Collections.shuffle(words, new Random(document));
+            writeDocument(directory.resolve(String.format("document-%05d.txt", document)), words);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (generated) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The directory of the documents.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return The documents, in name order.
+     */
+    public List<Path> getDocuments() throws IOException {
+        return txtFiles(directory);
+    }
+
+    static Path bundledDirectory() {
+        return Path.of(System.getProperty("corpus.directory", "../Part1-JobScheduler/src/main/resources/Books"));
+    }
+
+    static List<Path> txtFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.toString().toLowerCase().endsWith(".txt")).sorted().toList();
+        }
+    }
+
+    private static void writeDocument(Path document, List<String> words) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(document, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < words.size(); i++) {
+                writer.write(words.get(i));
+                writer.write(i % WORDS_PER_LINE == WORDS_PER_LINE - 1 ? '\n' : ' ');
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package it.unipi.m598992.benchmark;
+
+import it.unipi.m598992.jobscheduler.JobResult;
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.PipelineConfig;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordDirectoryEmitter;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time taken by JobScheduler.runSteps() to count the anagrams of the documents of the corpus, from the visit of the
+ * directory to the output (which only consumes the pairs), in the sequential, parallel and staged pipeline modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"sequential", "parallel", "pipeline"})
+    public String mode;
+
+    @Benchmark
+    public JobResult runSteps(Corpus corpus, Blackhole blackhole) {
+        JobScheduler<String, String, Long> jobScheduler = new JobScheduler<>(
+                new CiaoWordDirectoryEmitter().withInputRoots(List.of(corpus.getDirectory())),
+                AggregationStrategy.counting(), collectOutput -> collectOutput.forEach(blackhole::consume));
+        switch (mode) {
+            case "parallel" -> jobScheduler.withExecutor(ForkJoinPool.commonPool());
+            case "pipeline" -> jobScheduler.withStagedPipeline(new PipelineConfig());
+            default -> {
+                // sequential
+            }
+        }
+        return jobScheduler.runSteps();
+    }
+}
@@ -0,0 +1,68 @@
+package it.unipi.m598992.benchmark;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordReaderJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time taken by CiaoWordReaderJob.toCIAO() to compute the 'CIAO' key of each word of the bundled books, in the order
+ * in which they appear.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToCiaoBenchmark {
+    private final KeyFunction keyFunction = new KeyFunction();
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> bundledWords = new ArrayList<>();
+        for (Path book : Corpus.txtFiles(Corpus.bundledDirectory())) {
+            try (Stream<Pair<String, String>> pairs = new CiaoWordReaderJob(book).execute()) {
+                pairs.forEach(pair -> bundledWords.add(pair.getValue()));
+            }
+        }
+        words = bundledWords.toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void toCIAO(Blackhole blackhole) {
+        for (String word : words) {
+            blackhole.consume(keyFunction.key(word));
+        }
+    }
+
+    // Exposes the protected toCIAO() of the job
+    private static final class KeyFunction extends CiaoWordReaderJob {
+
+        KeyFunction() {
+            super("unused.txt");
+        }
+
+        String key(String word) {
+            return toCIAO(word);
+        }
+    }
+}
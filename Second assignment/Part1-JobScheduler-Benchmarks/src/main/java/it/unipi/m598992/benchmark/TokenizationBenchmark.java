@@ -0,0 +1,38 @@
+package it.unipi.m598992.benchmark;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordReaderJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time taken by CiaoWordReaderJob.execute() to read all the documents of the corpus and produce their (ciao(w), w)
+ * pairs, on a single thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizationBenchmark {
+
+    @Benchmark
+    public void execute(Corpus corpus, Blackhole blackhole) throws IOException {
+        for (Path document : corpus.getDocuments()) {
+            try (Stream<Pair<String, String>> pairs = new CiaoWordReaderJob(document).execute()) {
+                pairs.forEach(blackhole::consume);
+            }
+        }
+    }
+}
@@ -1,17 +1,83 @@
 package it.unipi.m598992;
 
+import it.unipi.m598992.jobscheduler.FailurePolicy;
+import it.unipi.m598992.jobscheduler.JobResult;
 import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.JobWorker;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.instance.CiaoDirectoryWatcher;
+import it.unipi.m598992.jobscheduler.instance.CiaoJobConfig;
+import it.unipi.m598992.jobscheduler.instance.CiaoJobRunner;
 import it.unipi.m598992.jobscheduler.instance.CiaoWordCsvOutput;
 import it.unipi.m598992.jobscheduler.instance.CiaoWordDirectoryEmitter;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordReaderJob;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
 
     public static void main(String[] args) {
+        if (args.length == 2 && args[0].equals("--watch")) {
+            // Keep count_anagrams.csv up to date with the directory until the program is stopped
+            new CiaoDirectoryWatcher(Path.of(args[1]), new CiaoWordCsvOutput<>(), Duration.ofSeconds(2))
+                    .withExecutor(ForkJoinPool.commonPool())
+                    .run();
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--worker")) {
+            // Read the documents sent by the coordinators until the program is stopped; the worker listens on the
+            // loopback interface unless an address is given (--worker host:port)
+            int separator = args[1].lastIndexOf(':');
+            InetSocketAddress bindAddress = separator < 0
+                    ? new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1]))
+                    : new InetSocketAddress(args[1].substring(0, separator),
+                    Integer.parseInt(args[1].substring(separator + 1)));
+            new JobWorker<>(bindAddress, CiaoWordReaderJob.codec(), AggregationStrategy.counting(),
+                    Codec.utf8(), Codec.varint64())
+                    .run();
+            return;
+        }
+        if (args.length > 0) {
+            // The directories are given as arguments, optionally preceded by the workers reading them
+            // (--workers host:port,host:port): run without asking anything to the user
+            List<InetSocketAddress> workers = List.of();
+            if (args.length > 2 && args[0].equals("--workers")) {
+                workers = Arrays.stream(args[1].split(","))
+                        .map(worker -> new InetSocketAddress(worker.substring(0, worker.lastIndexOf(':')),
+                                Integer.parseInt(worker.substring(worker.lastIndexOf(':') + 1))))
+                        .toList();
+                args = Arrays.copyOfRange(args, 2, args.length);
+            }
+            try (CiaoJobRunner runner = new CiaoJobRunner()) {
+                // An unreadable document is retried once and then skipped, without losing the others
+                CiaoJobConfig config = new CiaoJobConfig(Arrays.stream(args).map(Path::of).toList(),
+                        Path.of("count_anagrams.csv"))
+                        .withFailurePolicy(FailurePolicy.skipAndReport().withRetries(1, Duration.ofMillis(100)))
+                        .withWorkers(workers);
+                JobResult result = runner.run(config);
+                System.out.printf("%n%s%n", result);
+                result.getFailedJobs().forEach(failure -> System.out.printf("skipped: %s%n", failure));
+            }
+            return;
+        }
         // Creating an instance of the job scheduler by injecting specific strategies
-        // to meet the requirements
-        JobScheduler<String, String> jobScheduler =
-                new JobScheduler<>(new CiaoWordDirectoryEmitter(), new CiaoWordCsvOutput());
+        // to meet the requirements: only the number of anagrams of each key is needed,
+        // so the words are counted instead of being collected in a list
+        CiaoWordDirectoryEmitter emitter = new CiaoWordDirectoryEmitter();
+        JobScheduler<String, String, Long> jobScheduler =
+                new JobScheduler<>(emitter, AggregationStrategy.counting(),
+                        new CiaoWordCsvOutput<>())
+                        // Executing the jobs in parallel on all the available cores
+                        .withExecutor(ForkJoinPool.commonPool());
         // Running the framework
-        jobScheduler.runSteps();
+        JobResult result = jobScheduler.runSteps();
+        System.out.printf("%nCIAO key cache: %s%n%s%n", emitter.getKeyCacheStatistics(), result.getRunMetrics());
     }
 }
\ No newline at end of file
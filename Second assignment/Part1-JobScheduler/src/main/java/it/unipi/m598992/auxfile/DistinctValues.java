@@ -0,0 +1,175 @@
+package it.unipi.m598992.auxfile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Set of distinct values with the number of occurrences of each of them (multiset), used to keep the distinct values
+ * of a key instead of all their occurrences. Small sets are stored in two arrays with open addressing and linear
+ * probing, without an entry object per value; from MAX_COMPACT_SIZE distinct values on, a HashMap is used instead,
+ * so the large sets don't suffer from long probe sequences.
+ * This class is not thread-safe.
+ *
+ * @param <V> The type of the values.
+ */
+public final class DistinctValues<V> {
+    private static final int INITIAL_CAPACITY = 4;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MAX_COMPACT_SIZE = 32;
+
+    // Compact representation: the free slots are null; both arrays are released when the HashMap is created
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private Map<V, Integer> countsByValue;
+    private int size;
+    private long totalCount;
+
+    /**
+     * Adds an occurrence of the value.
+     */
+    public void add(V value) {
+        add(value, 1);
+    }
+
+    /**
+     * Adds some occurrences of the value.
+     *
+     * @throws IllegalArgumentException If the number of occurrences isn't positive.
+     * @throws ArithmeticException      If the number of occurrences of the value overflows an int.
+     */
+    public void add(V value, int occurrences) {
+        Objects.requireNonNull(value);
+        if (occurrences <= 0) {
+            throw new IllegalArgumentException("The number of occurrences must be positive: " + occurrences);
+        }
+        totalCount += occurrences;
+        if (countsByValue != null) {
+            if (countsByValue.merge(value, occurrences, Math::addExact) == occurrences) {
+                size++;
+            }
+            return;
+        }
+        int slot = slotOf(value, values);
+        if (values[slot] != null) {
+            counts[slot] = Math.addExact(counts[slot], occurrences);
+            return;
+        }
+        if (size == MAX_COMPACT_SIZE) {
+            switchToHashMap();
+            countsByValue.put(value, occurrences);
+            size++;
+            return;
+        }
+        values[slot] = value;
+        counts[slot] = occurrences;
+        if (++size > values.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    /**
+     * Adds all the occurrences of the values of another set.
+     */
+    public void addAll(DistinctValues<? extends V> other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * @return The number of occurrences of the value, 0 if it is not present.
+     */
+    public int count(V value) {
+        if (countsByValue != null) {
+            return countsByValue.getOrDefault(value, 0);
+        }
+        int slot = slotOf(value, values);
+        return values[slot] != null ? counts[slot] : 0;
+    }
+
+    /**
+     * @return The number of distinct values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of occurrences of all the values.
+     */
+    public long totalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Passes each distinct value with its number of occurrences to the action, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super V> action) {
+        if (countsByValue != null) {
+            countsByValue.forEach(action::accept);
+            return;
+        }
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                action.accept((V) values[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return The distinct values, in no particular order.
+     */
+    public List<V> values() {
+        List<V> distinctValues = new ArrayList<>(size);
+        forEach((value, count) -> distinctValues.add(value));
+        return distinctValues;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        forEach((value, count) -> result.append(result.length() > 1 ? ", " : "").append(value).append('=')
+                .append(count));
+        return result.append('}').toString();
+    }
+
+    // Returns the slot containing the value or, if it is not present, the free slot where it must be inserted
+    private static int slotOf(Object value, Object[] values) {
+        int mask = values.length - 1;
+        int hash = value.hashCode() * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (values[slot] != null && !values[slot].equals(value)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        Object[] oldValues = values;
+        int[] oldCounts = counts;
+        values = new Object[oldValues.length * 2];
+        counts = new int[oldCounts.length * 2];
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldValues[i], values);
+                values[slot] = oldValues[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void switchToHashMap() {
+        countsByValue = new HashMap<>(4 * MAX_COMPACT_SIZE);
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                countsByValue.put((V) values[slot], counts[slot]);
+            }
+        }
+        values = null;
+        counts = null;
+    }
+}
@@ -0,0 +1,105 @@
+package it.unipi.m598992.auxfile;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Map from long keys to int values based on open addressing with linear probing. Keys and values are stored in
+ * two primitive arrays, without boxing and without an entry object per key.
+ * This class is not thread-safe.
+ */
+public final class LongIntHashMap {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    // Marks the free slots; the key 0 is stored outside the arrays
+    private static final long FREE_KEY = 0;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    /**
+     * Adds the increment to the value of the key, which is 0 if the key is not present.
+     *
+     * @throws ArithmeticException If the value overflows an int.
+     */
+    public void addTo(long key, int increment) {
+        if (key == FREE_KEY) {
+            freeKeyValue = Math.addExact(freeKeyValue, increment);
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            return;
+        }
+        int slot = slotOf(key, keys);
+        if (keys[slot] == key) {
+            values[slot] = Math.addExact(values[slot], increment);
+            return;
+        }
+        keys[slot] = key;
+        values[slot] = increment;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    /**
+     * @return The value of the key, or 0 if the key is not present.
+     */
+    public int get(long key) {
+        if (key == FREE_KEY) {
+            return freeKeyValue;
+        }
+        int slot = slotOf(key, keys);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A stream of the entries of the map, in no particular order.
+     */
+    public Stream<Pair<Long, Integer>> entries() {
+        Stream<Pair<Long, Integer>> entries = IntStream.range(0, keys.length)
+                .filter(slot -> keys[slot] != FREE_KEY)
+                .mapToObj(slot -> new Pair<>(keys[slot], values[slot]));
+        return hasFreeKey ? Stream.concat(Stream.of(new Pair<>(FREE_KEY, freeKeyValue)), entries) : entries;
+    }
+
+    // Returns the slot containing the key or, if it is not present, the free slot where it must be inserted
+    private static int slotOf(long key, long[] keys) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        // Finalizer of MurmurHash3, so that keys differing only in the high bits are spread
+        long hash = key;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (hash ^ (hash >>> 33));
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int slot = slotOf(oldKeys[i], keys);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
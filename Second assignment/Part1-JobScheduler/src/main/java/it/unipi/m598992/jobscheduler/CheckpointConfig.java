@@ -0,0 +1,93 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Configuration of the checkpoints of the JobScheduler (see JobScheduler.withCheckpoint()): the file in which the
+ * completed jobs and their partial aggregations are saved, how they are encoded and how often they are saved.
+ *
+ * @param <K> The type of the keys.
+ * @param <A> The type of the accumulators.
+ */
+public final class CheckpointConfig<K, A> {
+    private final Path file;
+    private final Codec<K> keyCodec;
+    private final Codec<A> accumulatorCodec;
+    private Duration interval = Duration.ofSeconds(30);
+    private Function<? super AJob<K, ?>, String> jobId = CheckpointConfig::toStringId;
+
+    /**
+     * @param file             The checkpoint file; if it exists when a run starts, the run resumes from it.
+     * @param keyCodec         The codec used to write the keys.
+     * @param accumulatorCodec The codec used to write the accumulators.
+     */
+    public CheckpointConfig(Path file, Codec<K> keyCodec, Codec<A> accumulatorCodec) {
+        this.file = file;
+        this.keyCodec = keyCodec;
+        this.accumulatorCodec = accumulatorCodec;
+    }
+
+    /**
+     * @param interval The minimum time between two checkpoints (30 seconds by default); the jobs completed meanwhile
+     *                 are executed again if the run stops before the next checkpoint. Duration.ZERO saves every job
+     *                 as soon as it is completed.
+     * @return This configuration.
+     */
+    public CheckpointConfig<K, A> withInterval(Duration interval) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("The checkpoint interval must not be negative: " + interval);
+        }
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * @param jobId The identifier of a job, which must be the same in the run resuming from the checkpoint.
+     *              By default it is toString() (e.g. the file and the split read by a CiaoWordReaderJob), which is
+     *              accepted only if the class of the job overrides it: Object.toString() changes in every JVM, so the
+     *              jobs saved would be executed again, and counted twice, by the resumed run.
+     * @return This configuration.
+     */
+    public CheckpointConfig<K, A> withJobId(Function<? super AJob<K, ?>, String> jobId) {
+        this.jobId = jobId;
+        return this;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Codec<K> getKeyCodec() {
+        return keyCodec;
+    }
+
+    public Codec<A> getAccumulatorCodec() {
+        return accumulatorCodec;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public Function<? super AJob<K, ?>, String> getJobId() {
+        return jobId;
+    }
+
+    private static String toStringId(AJob<?, ?> job) {
+        try {
+            if (job.getClass().getMethod("toString").getDeclaringClass() == Object.class) {
+                throw new IllegalArgumentException(job.getClass().getName()
+                        + " doesn't override toString(): use withJobId() to identify its jobs in the checkpoint");
+            }
+        } catch (NoSuchMethodException e) {
+            // Every class has a public toString()
+            throw new AssertionError(e);
+        }
+        return job.toString();
+    }
+}
@@ -0,0 +1,279 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.codec.BlockFormat;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.codec.CorruptedBlockException;
+import it.unipi.m598992.jobscheduler.codec.Varints;
+import it.unipi.m598992.jobscheduler.exception.CheckpointException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Checkpoint file of a run of the JobScheduler: an append-only log of compressed blocks (see BlockFormat), each
+ * holding the identifiers of some completed jobs and their partial aggregations. The jobs completed since the last
+ * checkpoint are written at most once per checkpoint interval and forced to disk; since each block has its
+ * checksum, a block left incomplete by a crash is recognized, and discarded, by the run resuming from the file.
+ * The partial aggregation of a job is encoded as soon as the job is completed, before it is combined into the
+ * collect buffers, so only the blocks of the next checkpoint are kept in memory.
+ *
+ * @param <K> The type of the keys.
+ * @param <A> The type of the accumulators.
+ */
+final class CheckpointLog<K, A> {
+    // Identifies the checkpoint files, and their format
+    private static final int MAGIC = 0x43484B02;
+    // Size from which the jobs completed are written in a new block
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final Codec<String> JOB_ID_CODEC = Codec.utf8();
+
+    private final CheckpointConfig<K, A> config;
+    private final long intervalNanos;
+    // Identifiers of the jobs completed before the checkpoint, which are not executed again
+    private final Set<String> restoredJobs = new HashSet<>();
+    // Occurrences of each identifier emitted so far, accessed only by the emitting thread
+    private final Map<String, Integer> occurrences = new HashMap<>();
+    // Identifiers of the jobs emitted and not yet completed
+    private final Map<AJob<K, ?>, String> runningJobs = new ConcurrentHashMap<>();
+    // Jobs completed since the last checkpoint: the full blocks, and the jobs of the block being filled
+    private final List<byte[]> pendingBlocks = new ArrayList<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long lastCheckpoint = System.nanoTime();
+    private FileChannel channel;
+
+    CheckpointLog(CheckpointConfig<K, A> config) {
+        this.config = config;
+        this.intervalNanos = config.getInterval().toNanos();
+    }
+
+    /**
+     * Reads the checkpoint file, if it exists, and opens it to append the next blocks.
+     *
+     * @param restored Receives each partial accumulator saved in the file, in the order in which they were saved.
+     * @return The number of jobs completed before the checkpoint, which are not executed again.
+     * @throws CheckpointException If the file can't be read or written, or isn't a checkpoint file.
+     */
+    int restore(BiConsumer<K, A> restored) {
+        Path file = config.getFile();
+        try {
+            long validLength = Files.exists(file) ? read(file, restored) : 0;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Discard the block left incomplete, if any
+            channel.truncate(validLength);
+            channel.position(validLength);
+            if (validLength == 0) {
+                write(ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).flip());
+            }
+            return restoredJobs.size();
+        } catch (IOException e) {
+            throw new CheckpointException(e);
+        }
+    }
+
+    /**
+     * Assigns its identifier to a job. Must be called in emission order, since jobs with the same identifier (e.g. the
+     * same file emitted twice) are told apart by their occurrence.
+     *
+     * @return Whether the job must be executed, false if it was completed before the checkpoint.
+     */
+    boolean register(AJob<K, ?> job) {
+        String jobId = config.getJobId().apply(job);
+        int occurrence = occurrences.merge(jobId, 1, Integer::sum);
+        if (occurrence > 1) {
+            jobId = jobId + "#" + occurrence;
+        }
+        if (restoredJobs.contains(jobId)) {
+            return false;
+        }
+        runningJobs.put(job, jobId);
+        return true;
+    }
+
+    /**
+     * Adds the partial aggregation of a completed job to the checkpoint, writing the jobs completed since the last
+     * checkpoint if the checkpoint interval has elapsed. Does nothing once the log has been closed (e.g. by a run
+     * stopped by another job, while this one was still running).
+     *
+     * @throws CheckpointException If the checkpoint can't be written.
+     */
+    void completed(AJob<K, ?> job, List<Map<K, A>> partialAggregation) {
+        // The job is encoded by the thread that has completed it, outside the lock
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(record);
+            JOB_ID_CODEC.write(out, runningJobs.remove(job));
+            Varints.writeVarInt(out, partialAggregation.stream().mapToInt(Map::size).sum());
+            for (Map<K, A> aggregation : partialAggregation) {
+                for (Map.Entry<K, A> entry : aggregation.entrySet()) {
+                    config.getKeyCodec().write(out, entry.getKey());
+                    config.getAccumulatorCodec().write(out, entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new CheckpointException(e);
+        }
+        synchronized (this) {
+            if (channel == null) {
+                return;
+            }
+            pending.writeBytes(record.toByteArray());
+            if (pending.size() >= BLOCK_SIZE) {
+                pendingBlocks.add(pending.toByteArray());
+                pending.reset();
+            }
+            if (System.nanoTime() - lastCheckpoint >= intervalNanos) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Releases the checkpoint file.
+     *
+     * @param runCompleted Whether the output has been produced: the file is then deleted, otherwise the jobs
+     *                     completed since the last checkpoint are saved, so the next run resumes from them.
+     * @throws CheckpointException If the file can't be written or deleted.
+     */
+    synchronized void close(boolean runCompleted) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            try {
+                if (!runCompleted) {
+                    flush();
+                }
+            } finally {
+                channel.close();
+            }
+            if (runCompleted) {
+                Files.deleteIfExists(config.getFile());
+            }
+        } catch (IOException e) {
+            throw new CheckpointException(e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private void flush() {
+        if (pending.size() > 0) {
+            pendingBlocks.add(pending.toByteArray());
+            pending.reset();
+        }
+        if (pendingBlocks.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(blocks);
+            for (byte[] block : pendingBlocks) {
+                BlockFormat.writeBlock(out, block, block.length, true);
+            }
+            write(ByteBuffer.wrap(blocks.toByteArray()));
+            // The blocks are on disk before the jobs are considered saved
+            channel.force(false);
+        } catch (IOException e) {
+            throw new CheckpointException(e);
+        }
+        pendingBlocks.clear();
+        lastCheckpoint = System.nanoTime();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return The length of the valid part of the file: the header and the complete blocks.
+     */
+    private long read(Path file, BiConsumer<K, A> restored) throws IOException {
+        if (Files.size(file) < Integer.BYTES) {
+            // The run has stopped before writing the header
+            return 0;
+        }
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            DataInputStream in = new DataInputStream(counter);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            long validLength = counter.count;
+            while (true) {
+                byte[] block;
+                try {
+                    block = BlockFormat.readBlock(in);
+                } catch (EOFException | CorruptedBlockException e) {
+                    // The end of the file, or the last block has been truncated or partially written
+                    return validLength;
+                }
+                readBlock(block, restored);
+                validLength = counter.count;
+            }
+        }
+    }
+
+    private void readBlock(byte[] block, BiConsumer<K, A> restored) throws IOException {
+        ByteArrayInputStream blockIn = new ByteArrayInputStream(block);
+        DataInputStream in = new DataInputStream(blockIn);
+        while (blockIn.available() > 0) {
+            restoredJobs.add(JOB_ID_CODEC.read(in));
+            int entries = Varints.readVarInt(in);
+            for (int entry = 0; entry < entries; entry++) {
+                restored.accept(config.getKeyCodec().read(in), config.getAccumulatorCodec().read(in));
+            }
+        }
+    }
+
+    /**
+     * Keeps track of the position in the file, i.e. the end of the last block read.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
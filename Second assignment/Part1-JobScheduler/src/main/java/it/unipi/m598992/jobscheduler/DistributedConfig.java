@@ -0,0 +1,110 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration of the distributed mode of the JobScheduler (see JobScheduler.withDistributedWorkers()): the
+ * addresses of the JobWorkers, how the jobs and their partial aggregations are encoded on the wire and how many jobs
+ * each worker runs at the same time.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values emitted by the jobs.
+ * @param <A> The type of the accumulators.
+ */
+public final class DistributedConfig<K, V, A> {
+    private final List<InetSocketAddress> workers;
+    private final Codec<AJob<K, V>> jobCodec;
+    private final Codec<K> keyCodec;
+    private final Codec<A> accumulatorCodec;
+    private int jobsPerWorker = 2;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration jobTimeout = Duration.ofMinutes(10);
+
+    /**
+     * @param workers          The addresses of the workers (e.g. localhost and the port of each worker process).
+     * @param jobCodec         The codec of the descriptions of the jobs, which must be the one of the workers.
+     * @param keyCodec         The codec of the keys, which must be the one of the workers.
+     * @param accumulatorCodec The codec of the accumulators, which must be the one of the workers.
+     */
+    public DistributedConfig(List<InetSocketAddress> workers, Codec<AJob<K, V>> jobCodec, Codec<K> keyCodec,
+                             Codec<A> accumulatorCodec) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        this.workers = List.copyOf(workers);
+        this.jobCodec = jobCodec;
+        this.keyCodec = keyCodec;
+        this.accumulatorCodec = accumulatorCodec;
+    }
+
+    /**
+     * @param jobsPerWorker The number of jobs sent to each worker without waiting for their results (2 by default),
+     *                      so that a worker doesn't stay idle while its results travel back; it should be at least the
+     *                      number of threads of the workers.
+     * @return This configuration.
+     */
+    public DistributedConfig<K, V, A> withJobsPerWorker(int jobsPerWorker) {
+        if (jobsPerWorker <= 0) {
+            throw new IllegalArgumentException("The number of jobs per worker must be positive: " + jobsPerWorker);
+        }
+        this.jobsPerWorker = jobsPerWorker;
+        return this;
+    }
+
+    /**
+     * @param connectTimeout The maximum time to connect to a worker (5 seconds by default); the workers that can't
+     *                       be reached are not used by the run.
+     * @return This configuration.
+     */
+    public DistributedConfig<K, V, A> withConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    /**
+     * @param jobTimeout The maximum time to wait for the result of a job (10 minutes by default): a worker that
+     *                   doesn't answer in time is considered hung, so its connection is dropped and its jobs are sent
+     *                   to the other workers.
+     * @return This configuration.
+     */
+    public DistributedConfig<K, V, A> withJobTimeout(Duration jobTimeout) {
+        if (jobTimeout.isNegative() || jobTimeout.isZero()) {
+            throw new IllegalArgumentException("The job timeout must be positive: " + jobTimeout);
+        }
+        this.jobTimeout = jobTimeout;
+        return this;
+    }
+
+    public List<InetSocketAddress> getWorkers() {
+        return workers;
+    }
+
+    public Codec<AJob<K, V>> getJobCodec() {
+        return jobCodec;
+    }
+
+    public Codec<K> getKeyCodec() {
+        return keyCodec;
+    }
+
+    public Codec<A> getAccumulatorCodec() {
+        return accumulatorCodec;
+    }
+
+    public int getJobsPerWorker() {
+        return jobsPerWorker;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getJobTimeout() {
+        return jobTimeout;
+    }
+}
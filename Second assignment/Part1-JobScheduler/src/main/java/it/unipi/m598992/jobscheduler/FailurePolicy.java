@@ -0,0 +1,94 @@
+package it.unipi.m598992.jobscheduler;
+
+import java.time.Duration;
+
+/**
+ * How the JobScheduler reacts to a job that fails (e.g. a file that can't be read), see
+ * JobScheduler.withFailurePolicy(): a failed job is first retried, waiting an exponentially growing backoff between
+ * the attempts; if all its attempts fail, the run either stops (fail-fast) or skips the job, reporting it in the
+ * JobResult, until too many jobs have failed.
+ * A skipped job contributes nothing to the result, not even the pairs it emitted before failing.
+ */
+public final class FailurePolicy {
+    private final int maxFailures;
+    private int maxRetries;
+    private Duration initialBackoff = Duration.ZERO;
+
+    private FailurePolicy(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    /**
+     * @return A policy stopping the run at the first job that fails (the default): its exception is rethrown by
+     * runSteps().
+     */
+    public static FailurePolicy failFast() {
+        return new FailurePolicy(0);
+    }
+
+    /**
+     * @return A policy skipping every job that fails: the run always completes with the result of the other jobs.
+     */
+    public static FailurePolicy skipAndReport() {
+        return new FailurePolicy(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxFailures The number of jobs that may fail and be skipped; when one more fails the run is stopped.
+     * @return A policy skipping the jobs that fail until their number exceeds the threshold.
+     */
+    public static FailurePolicy maxFailures(int maxFailures) {
+        if (maxFailures < 0) {
+            throw new IllegalArgumentException("The maximum number of failures must not be negative: " + maxFailures);
+        }
+        return new FailurePolicy(maxFailures);
+    }
+
+    /**
+     * Retries each failed job before considering it failed.
+     *
+     * @param maxRetries     The number of attempts after the first one (0 by default).
+     * @param initialBackoff The wait before the first retry, doubled before each of the following ones.
+     * @return This policy.
+     */
+    public FailurePolicy withRetries(int maxRetries, Duration initialBackoff) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("The maximum number of retries must not be negative: " + maxRetries);
+        }
+        if (initialBackoff.isNegative()) {
+            throw new IllegalArgumentException("The backoff must not be negative: " + initialBackoff);
+        }
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        return this;
+    }
+
+    public int getMaxFailures() {
+        return maxFailures;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    /**
+     * @return Whether a job may be executed again or skipped, so its pairs must be aggregated on their own before
+     * being collected.
+     */
+    boolean isolatesJobs() {
+        return maxFailures > 0 || maxRetries > 0;
+    }
+
+    /**
+     * @param retry The number of the retry, starting from 1.
+     * @return The wait before the retry.
+     */
+    Duration backoff(int retry) {
+        // The shift is capped so that the backoff doesn't overflow
+        return initialBackoff.multipliedBy(1L << Math.min(retry - 1, 30));
+    }
+}
@@ -0,0 +1,38 @@
+package it.unipi.m598992.jobscheduler;
+
+/**
+ * A job skipped by a run of the JobScheduler because all its attempts failed (see FailurePolicy).
+ */
+public final class JobFailure {
+    private final String job;
+    private final int attempts;
+    private final RuntimeException cause;
+
+    /**
+     * @param job      The description of the job, i.e. its toString() (e.g. the file it reads).
+     * @param attempts The number of times the job has been executed.
+     * @param cause    The exception raised by the last attempt.
+     */
+    public JobFailure(String job, int attempts, RuntimeException cause) {
+        this.job = job;
+        this.attempts = attempts;
+        this.cause = cause;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public RuntimeException getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s failed after %d attempt(s): %s", job, attempts, cause);
+    }
+}
@@ -0,0 +1,80 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.jobscheduler.metrics.CacheStatistics;
+import it.unipi.m598992.jobscheduler.metrics.RunMetrics;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Summary of a run of the JobScheduler, returned by runSteps() once the output has been produced.
+ */
+public final class JobResult {
+    private final Duration elapsedTime;
+    private final long numberOfJobs;
+    private final long numberOfKeys;
+    private final CacheStatistics jobCacheStatistics;
+    private final RunMetrics runMetrics;
+    private final List<JobFailure> failedJobs;
+    private final long restoredJobs;
+
+    /**
+     * @param elapsedTime        The wall-clock time of the run, from the emission of the jobs to the end of the output.
+     * @param numberOfJobs       The number of jobs emitted, executed or found in the job cache.
+     * @param numberOfKeys       The number of keys passed to the output strategy.
+     * @param jobCacheStatistics The jobs whose partial aggregation was found in the job cache (hits) and the jobs
+     *                           executed because it wasn't (misses); both are 0 without a job cache.
+     * @param runMetrics         The resources used by the run and by each of its phases.
+     * @param failedJobs         The jobs skipped because all their attempts failed, allowed by the failure policy.
+     * @param restoredJobs       The jobs completed by a previous run and restored from the checkpoint, so not
+     *                           executed; 0 without checkpoints.
+     */
+    public JobResult(Duration elapsedTime, long numberOfJobs, long numberOfKeys, CacheStatistics jobCacheStatistics,
+                     RunMetrics runMetrics, List<JobFailure> failedJobs, long restoredJobs) {
+        this.elapsedTime = elapsedTime;
+        this.numberOfJobs = numberOfJobs;
+        this.numberOfKeys = numberOfKeys;
+        this.jobCacheStatistics = jobCacheStatistics;
+        this.runMetrics = runMetrics;
+        this.failedJobs = failedJobs;
+        this.restoredJobs = restoredJobs;
+    }
+
+    public Duration getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public long getNumberOfJobs() {
+        return numberOfJobs;
+    }
+
+    public long getNumberOfKeys() {
+        return numberOfKeys;
+    }
+
+    public CacheStatistics getJobCacheStatistics() {
+        return jobCacheStatistics;
+    }
+
+    public RunMetrics getRunMetrics() {
+        return runMetrics;
+    }
+
+    /**
+     * @return The report of the failed inputs: the jobs that contributed nothing to the result, in failure order.
+     */
+    public List<JobFailure> getFailedJobs() {
+        return failedJobs;
+    }
+
+    public long getRestoredJobs() {
+        return restoredJobs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("jobs: %d, keys: %d, elapsed time: %d ms, job cache: %s, failed jobs: %d, "
+                        + "restored jobs: %d", numberOfJobs, numberOfKeys, elapsedTime.toMillis(), jobCacheStatistics,
+                failedJobs.size(), restoredJobs);
+    }
+}
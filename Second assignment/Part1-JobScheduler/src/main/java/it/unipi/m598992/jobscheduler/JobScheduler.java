@@ -2,66 +2,704 @@ package it.unipi.m598992.jobscheduler;
 
 import it.unipi.m598992.auxfile.AJob;
 import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.collect.ExternalSortCollectStrategy;
+import it.unipi.m598992.jobscheduler.collect.InMemoryCollectStrategy;
+import it.unipi.m598992.jobscheduler.exception.TooManyFailuresException;
+import it.unipi.m598992.jobscheduler.metrics.CacheStatistics;
+import it.unipi.m598992.jobscheduler.metrics.JfrMetricsListener;
+import it.unipi.m598992.jobscheduler.metrics.MetricsListener;
+import it.unipi.m598992.jobscheduler.metrics.Phase;
+import it.unipi.m598992.jobscheduler.metrics.RunMetrics;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.CollectBuffer;
+import it.unipi.m598992.jobscheduler.strategy.CollectStrategy;
 import it.unipi.m598992.jobscheduler.strategy.EmitStrategy;
+import it.unipi.m598992.jobscheduler.strategy.JobCache;
 import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+import it.unipi.m598992.jobscheduler.strategy.PartitionedOutputStrategy;
+import it.unipi.m598992.jobscheduler.strategy.Partitioner;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 /**
  * This class serves as a generic job scheduler framework, implementing the Strategy design pattern
- * for job emission and stream consumption after the collect phase.
+ * for job emission, aggregation of the values of each key and stream consumption after the collect phase.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values emitted by the jobs.
+ * @param <A> The type of the value associated with each key after the collect phase.
  */
 // Using a final class because extending behavior is achieved through composition
 // by injecting specific strategies, rather than relying on inheritance
-public final class JobScheduler<K, V> {
+public final class JobScheduler<K, V, A> {
     private final EmitStrategy<K, V> emitStrategy;
-    private final OutputStrategy<K, V> outputStrategy;
+    private final AggregationStrategy<K, V, A> aggregationStrategy;
+    private final OutputStrategy<K, A> outputStrategy;
+    // Executor used by the parallel mode; when it is null the jobs are executed sequentially
+    private Executor executor;
+    // When it is 0 the bound depends on the threads executing the jobs
+    private int maxJobsInFlight = 0;
+    private CollectStrategy<K, V, A> collectStrategy = new InMemoryCollectStrategy<>();
+    private int numberOfPartitions = 1;
+    private Partitioner<K> partitioner = Partitioner.hash();
+    // When it is null every job is executed
+    private JobCache<K, A> jobCache;
+    // When it is null the phases are not run as a staged pipeline
+    private PipelineConfig pipelineConfig;
+    private FailurePolicy failurePolicy = FailurePolicy.failFast();
+    // When it is null the runs are not checkpointed
+    private CheckpointConfig<K, A> checkpointConfig;
+    // When it is null the jobs are executed by this JVM
+    private DistributedConfig<K, V, A> distributedConfig;
+    // The metrics are always published as JFR events
+    private final List<MetricsListener> metricsListeners = new ArrayList<>(List.of(new JfrMetricsListener()));
 
     /**
      * This constructor follows the Dependency Injection pattern to provide strategies for the runSteps() method.
+     * The scheduler created is sequential: use withExecutor() to enable the parallel mode.
      *
-     * @param emitStrategy   The strategy for job emission (hot spot).
-     * @param outputStrategy The strategy for output handling (hot spot).
+     * @param emitStrategy        The strategy for job emission (hot spot).
+     * @param aggregationStrategy The strategy for reducing the values of each key during the collect phase
+     *                            (hot spot), e.g. AggregationStrategy.toList() or AggregationStrategy.counting().
+     * @param outputStrategy      The strategy for output handling (hot spot).
      */
-    public JobScheduler(EmitStrategy<K, V> emitStrategy, OutputStrategy<K, V> outputStrategy) {
+    public JobScheduler(EmitStrategy<K, V> emitStrategy, AggregationStrategy<K, V, A> aggregationStrategy,
+                        OutputStrategy<K, A> outputStrategy) {
         this.emitStrategy = emitStrategy;
+        this.aggregationStrategy = aggregationStrategy;
         this.outputStrategy = outputStrategy;
     }
 
+    /**
+     * Enables the parallel mode: each emitted job is executed on the given executor (e.g. a ForkJoinPool or a
+     * fixed thread pool) and its pairs are aggregated by key on the same worker thread (map-side combine).
+     * The partial aggregations are then combined following the emission order, so the result is exactly
+     * the same as the one of the sequential mode.
+     * The executor is not shut down by the scheduler.
+     *
+     * @param executor The executor on which the jobs are run, or null to restore the sequential mode (useful
+     *                 for debugging).
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Bounds the jobs of the parallel and distributed modes that have been submitted and whose partial aggregations
+     * haven't been combined yet: the emission of the jobs waits once the bound is reached, so the partial
+     * aggregations held in memory don't grow with the number of jobs.
+     * By default the bound is twice the threads executing the jobs (the parallelism of a ForkJoinPool, the available
+     * processors for the other executors, the jobs sent to the workers in distributed mode).
+     *
+     * @param maxJobsInFlight The maximum number of jobs in flight.
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withMaxJobsInFlight(int maxJobsInFlight) {
+        if (maxJobsInFlight <= 0) {
+            throw new IllegalArgumentException("The number of jobs in flight must be positive: " + maxJobsInFlight);
+        }
+        this.maxJobsInFlight = maxJobsInFlight;
+        return this;
+    }
+
+    /**
+     * Changes where the collect phase keeps the accumulators while the jobs are running. By default they are kept
+     * in memory (InMemoryCollectStrategy); an ExternalSortCollectStrategy spills them to disk once its memory
+     * budget is crossed. Each partition opens its own buffer, so the budget applies to each partition.
+     *
+     * @param collectStrategy The strategy used by the collect phase.
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withCollectStrategy(CollectStrategy<K, V, A> collectStrategy) {
+        this.collectStrategy = collectStrategy;
+        return this;
+    }
+
+    /**
+     * Hash-partitions the keys in the given number of partitions. Each partition has its own collect buffer, so the
+     * partitions are collected concurrently in the parallel mode; if the output strategy is a
+     * PartitionedOutputStrategy, each partition is also consumed independently (e.g. one file per partition).
+     *
+     * @param numberOfPartitions The number of partitions (1 by default).
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withPartitions(int numberOfPartitions) {
+        return withPartitions(numberOfPartitions, Partitioner.hash());
+    }
+
+    /**
+     * Partitions the keys in the given number of partitions using the given partitioner.
+     *
+     * @param numberOfPartitions The number of partitions (1 by default).
+     * @param partitioner        The strategy that assigns each key to a partition.
+     * @return This scheduler.
+     * @see #withPartitions(int)
+     */
+    public JobScheduler<K, V, A> withPartitions(int numberOfPartitions, Partitioner<K> partitioner) {
+        if (numberOfPartitions <= 0) {
+            throw new IllegalArgumentException("The number of partitions must be positive: " + numberOfPartitions);
+        }
+        this.numberOfPartitions = numberOfPartitions;
+        this.partitioner = partitioner;
+        return this;
+    }
+
+    /**
+     * Enables the incremental runs: before executing a job, its partial aggregation is looked up in the cache and,
+     * if the input of the job hasn't changed since it was stored, it is combined without executing the job.
+     * The partial aggregations of the jobs executed are stored in the cache for the following runs.
+     *
+     * @param jobCache The cache of the partial aggregations, or null to execute all the jobs (the default).
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withJobCache(JobCache<K, A> jobCache) {
+        this.jobCache = jobCache;
+        return this;
+    }
+
+    /**
+     * Enables the staged pipeline mode: the emit, compute and collect phases are run by their own threads,
+     * connected by bounded queues, so that the jobs are read and executed while the previous partial aggregations
+     * are being collected, and a slow stage throttles the previous ones (backpressure) keeping the memory bounded.
+     * The number of workers of each stage and the capacity of the queues are set by the configuration, which also
+     * exposes the statistics of the stages (items, idle and blocked time, queue depths).
+     * Unlike the parallel mode, the partial aggregations are combined in completion order, so the result is the same
+     * as the one of the sequential mode only when combine() doesn't depend on the order (e.g. counting()).
+     * The output phase starts once all the jobs have been collected, and uses the executor, if any.
+     *
+     * @param pipelineConfig The configuration of the stages, or null to disable the staged pipeline mode.
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withStagedPipeline(PipelineConfig pipelineConfig) {
+        this.pipelineConfig = pipelineConfig;
+        return this;
+    }
+
+    /**
+     * Changes how the failed jobs are handled. By default the first exception raised by a job stops the run and is
+     * rethrown by runSteps(); a policy can retry the failed jobs and skip those failing all their attempts, so that
+     * the other jobs still contribute to the result and the skipped ones are reported by the JobResult.
+     * When the jobs may be retried or skipped, each job is aggregated on its own before being collected (as in the
+     * parallel mode), so a job failing halfway contributes nothing.
+     *
+     * @param failurePolicy The policy applied to the failed jobs (FailurePolicy.failFast() by default).
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withFailurePolicy(FailurePolicy failurePolicy) {
+        this.failurePolicy = failurePolicy;
+        return this;
+    }
+
+    /**
+     * Enables the checkpoints: the completed jobs and their partial aggregations are periodically saved in the
+     * checkpoint file, so that a run stopped before producing the output (e.g. because the JVM has crashed) can be
+     * resumed by the next run with the same checkpoint file, which doesn't execute the saved jobs again.
+     * The file is deleted once the output has been produced. As with the failure policy, each job is aggregated on
+     * its own before being collected.
+     * The saved partial aggregations are combined before those of the other jobs: the result is the same as the one
+     * of an uninterrupted run when combine() doesn't depend on the order, or when the jobs are saved in emission
+     * order (as in the sequential mode).
+     *
+     * @param checkpointConfig The checkpoint file, how it is written and how often, or null to disable the
+     *                         checkpoints (the default).
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withCheckpoint(CheckpointConfig<K, A> checkpointConfig) {
+        this.checkpointConfig = checkpointConfig;
+        return this;
+    }
+
+    /**
+     * Enables the distributed mode: this scheduler becomes the coordinator of some JobWorkers, usually running in
+     * other JVMs, which receive the descriptions of the jobs over sockets, execute them and send back their partial
+     * aggregations split by partition; the coordinator collects them and produces the output.
+     * Each job is sent to the least busy worker, and the jobs of a worker whose connection is lost (e.g. because it
+     * has crashed) are sent to the other workers. The partial aggregations are combined in emission order, as in the
+     * parallel mode, by a pool of threads of the run, and the failure policy, the job cache and the checkpoints apply
+     * as for the local jobs. The metrics of the run don't include the resources used by the workers.
+     *
+     * @param distributedConfig The workers and the codecs of the jobs, keys and accumulators, or null to execute the
+     *                          jobs in this JVM (the default).
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withDistributedWorkers(DistributedConfig<K, V, A> distributedConfig) {
+        this.distributedConfig = distributedConfig;
+        return this;
+    }
+
+    /**
+     * Adds a listener receiving the metrics of each job, of each phase and of the whole run (wall and CPU time,
+     * allocated memory, pairs, bytes and tokens read, distinct keys, garbage collections). The metrics are also
+     * published as JFR events (see JfrMetricsListener) and returned by runSteps().
+     *
+     * @param metricsListener The listener, invoked by the threads of the runs.
+     * @return This scheduler.
+     */
+    public JobScheduler<K, V, A> withMetricsListener(MetricsListener metricsListener) {
+        metricsListeners.add(metricsListener);
+        return this;
+    }
 
     /**
      * Executes the framework steps, where the output of each step is used as input for the next (composition).
      * Uses the injected strategy as the hot spot.
+     * The scheduler keeps no state between runs, so it can be run many times (e.g. on different inputs).
+     *
+     * @return The elapsed time, the number of jobs and keys, the hits and misses of the job cache, the metrics of the
+     * run, the jobs skipped because they failed and those restored from the checkpoint.
+     * @throws TooManyFailuresException If more jobs have failed than allowed by the failure policy.
+     * @throws it.unipi.m598992.jobscheduler.exception.CheckpointException If the checkpoint file can't be read or
+     *                                                                     written.
+     * @throws it.unipi.m598992.jobscheduler.exception.WorkerException If the workers of the distributed mode can't
+     *                                                                 be reached.
+     * @throws IllegalStateException If a job with ProcessLocalKeys is emitted while the job cache, the checkpoint,
+     *                               the distributed mode or an ExternalSortCollectStrategy is enabled.
      */
-    public void runSteps() {
+    public JobResult runSteps() {
+        long startTime = System.nanoTime();
+        LongAdder numberOfJobs = new LongAdder();
+        LongAdder numberOfKeys = new LongAdder();
+        CacheStatistics jobCacheStatistics = new CacheStatistics();
+        RunMetricsRecorder metrics = new RunMetricsRecorder(metricsListeners);
+        List<JobFailure> failures = Collections.synchronizedList(new ArrayList<>());
+        CheckpointLog<K, A> checkpointLog = checkpointConfig == null ? null : new CheckpointLog<>(checkpointConfig);
         // Use the strategy to retrieve the stream of jobs (Hot spot).
-        Stream<AJob<K, V>> emitOutput = emitStrategy.emit();
-        // Compute in a uniquely shared way across all instances of the framework (Frozen spot)
-        Stream<Pair<K, V>> computeOutput = compute(emitOutput);
-        // Collect in a uniquely shared way across all instances of the framework (Frozen spot)
-        Stream<Pair<K, List<V>>> collectOutput = collect(computeOutput);
-        // Use the strategy to consume the stream of pairs (Hot spot)
-        outputStrategy.output(collectOutput);
+        RunMetricsRecorder.Sample emitSample = metrics.start();
+        Stream<AJob<K, V>> emitOutput = metrics.measure(Phase.EMIT, emitStrategy.emit())
+                .peek(job -> numberOfJobs.increment())
+                .peek(this::checkKeysCanLeaveProcess)
+                // The jobs saved by the checkpoint are not executed again
+                .filter(job -> checkpointLog == null || checkpointLog.register(job));
+        metrics.record(Phase.EMIT, emitSample);
+        // In distributed mode the threads of the run send the jobs to the workers and wait for their results
+        RemoteWorkers<K, V, A> remoteWorkers = distributedConfig == null ? null
+                : new RemoteWorkers<>(distributedConfig, numberOfPartitions, partitioner);
+        ExecutorService remoteExecutor = remoteWorkers == null ? null : Executors.newFixedThreadPool(
+                distributedConfig.getWorkers().size() * distributedConfig.getJobsPerWorker(), runnable -> {
+                    Thread thread = new Thread(runnable, "job-scheduler-coordinator");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        RunState<K, V, A> run = new RunState<>(remoteExecutor == null ? executor : remoteExecutor,
+                jobCacheStatistics, metrics, failures, checkpointLog, remoteWorkers);
+        // Open one collect buffer for each partition; they are released when the output has been produced
+        List<CollectBuffer<K, V, A>> collectBuffers = new ArrayList<>(numberOfPartitions);
+        boolean completed = false;
+        int restoredJobs = 0;
+        try {
+            for (int partition = 0; partition < numberOfPartitions; partition++) {
+                collectBuffers.add(collectStrategy.open(aggregationStrategy));
+            }
+            if (checkpointLog != null) {
+                // Resume from the checkpoint, if any, by combining the saved partial aggregations
+                restoredJobs = checkpointLog.restore((key, accumulator) ->
+                        collectBuffers.get(partitionOf(key)).combine(key, accumulator));
+            }
+            // The stream of jobs is closed once all the jobs have been executed, releasing its resources
+            // (e.g. the directories being visited)
+            try (emitOutput) {
+                if (pipelineConfig != null) {
+                    // Compute and collect on the threads of the stages (Frozen spot)
+                    new StagedPipeline<>(pipelineConfig, job -> executeAndAggregate(job, run), collectBuffers,
+                            metrics).run(emitOutput);
+                } else if (run.executor() == null && jobCache == null && !failurePolicy.isolatesJobs()
+                        && checkpointLog == null) {
+                    // Compute in a uniquely shared way across all instances of the framework (Frozen spot)
+                    Stream<Pair<K, V>> computeOutput = compute(emitOutput, metrics);
+                    // Collect in a uniquely shared way across all instances of the framework (Frozen spot)
+                    collect(computeOutput, collectBuffers);
+                } else if (run.executor() == null) {
+                    // Each job is aggregated on its own, so that its partial aggregation can be cached or saved, and
+                    // a failed job retried or skipped (Frozen spot)
+                    emitOutput.forEach(job -> combineInto(collectBuffers, executeAndAggregate(job, run), metrics));
+                } else {
+                    // Compute and collect on the executor, one task per job, executed by a worker in
+                    // distributed mode (Frozen spot)
+                    computeAndCollectInParallel(emitOutput, collectBuffers, run);
+                }
+            }
+            // Use the strategy to consume the stream of pairs (Hot spot)
+            output(collectBuffers, numberOfKeys, run);
+            completed = true;
+        } finally {
+            collectBuffers.forEach(CollectBuffer::close);
+            if (checkpointLog != null) {
+                // The checkpoint is kept only if the run has been stopped
+                checkpointLog.close(completed);
+            }
+            if (remoteWorkers != null) {
+                remoteWorkers.close();
+                remoteExecutor.shutdown();
+            }
+        }
         System.out.printf("%s: all steps have been performed without error",
                 this.getClass().getSimpleName());
+        RunMetrics runMetrics = metrics.finish(numberOfKeys.sum());
+        return new JobResult(Duration.ofNanos(System.nanoTime() - startTime), numberOfJobs.sum(),
+                numberOfKeys.sum(), jobCacheStatistics, runMetrics, List.copyOf(failures), restoredJobs);
     }
 
-    private Stream<Pair<K, V>> compute(Stream<AJob<K, V>> emitOutput) {
+    private Stream<Pair<K, V>> compute(Stream<AJob<K, V>> emitOutput, RunMetricsRecorder metrics) {
         // Executes each job and flattens their streams into a single stream.
         // flatMap is used to transform Stream<Stream<Pair<K, V>>> into a single Stream<Pair<K, V>>.
-        return emitOutput.flatMap(AJob::execute);
+        // The metrics of each job are recorded when flatMap closes its stream.
+        return emitOutput.flatMap(metrics::execute);
+    }
+
+    private void collect(Stream<Pair<K, V>> computeOutput, List<CollectBuffer<K, V, A>> collectBuffers) {
+        // Aggregate the values of each key into its accumulator, in the buffer of the partition of the key,
+        // without keeping the values themselves
+        computeOutput.forEach(pair -> collectBuffers.get(partitionOf(pair.getKey()))
+                .accumulate(pair.getKey(), pair.getValue()));
     }
 
-    private Stream<Pair<K, List<V>>> collect(Stream<Pair<K, V>> computeOutput) {
-        // Group key/value pairs by key and collect values grouped into a list
-        Map<K, List<V>> groupedByKey = computeOutput.collect(
-                Collectors.groupingBy(Pair::getKey,
-                        Collectors.mapping(Pair::getValue, Collectors.toList())));
-        // Transform the grouped entries back into a stream of Pair objects
-        return groupedByKey.entrySet().stream().map(entry ->
-                new Pair<>(entry.getKey(), entry.getValue()));
+    private void computeAndCollectInParallel(Stream<AJob<K, V>> emitOutput,
+                                             List<CollectBuffer<K, V, A>> collectBuffers,
+                                             RunState<K, V, A> run) {
+        // Jobs submitted and not yet combined into all the partitions, cancelled if a job fails
+        Set<CompletableFuture<?>> jobsInFlight = ConcurrentHashMap.newKeySet();
+        Semaphore permits = new Semaphore(maxJobsInFlight > 0 ? maxJobsInFlight : defaultMaxJobsInFlight(run));
+        // Merge chain of each partition: the partial aggregations are combined into the buffer of the partition
+        // following the emission order (so the result is the same as in the sequential mode), while
+        // different partitions are merged concurrently
+        List<CompletableFuture<Void>> partitionMerges = new ArrayList<>(
+                Collections.nCopies(numberOfPartitions, CompletableFuture.completedFuture(null)));
+        emitOutput.forEach(job -> {
+            // Wait for a previous job to be combined, so its partial aggregation has been released
+            permits.acquireUninterruptibly();
+            if (partitionMerges.get(0).isCompletedExceptionally()) {
+                // Every job is merged into the first partition, so a failed job stops its chain: stop emitting
+                permits.release();
+                join(partitionMerges.get(0), jobsInFlight);
+            }
+            // Submit each job as soon as it is emitted: the worker executes it and aggregates its pairs locally
+            // (map-side combine), already split by partition
+            CompletableFuture<List<Map<K, A>>> partialAggregation = executeAndAggregateAsync(job, run);
+            jobsInFlight.add(partialAggregation);
+            CompletableFuture<?>[] jobMerges = new CompletableFuture<?>[numberOfPartitions];
+            for (int partition = 0; partition < numberOfPartitions; partition++) {
+                partitionMerges.set(partition, mergeInto(partition, collectBuffers.get(partition),
+                        partitionMerges.get(partition), partialAggregation, run));
+                jobMerges[partition] = partitionMerges.get(partition);
+            }
+            // The future of the job, and so its partial aggregation, is no longer referenced once merged
+            CompletableFuture.allOf(jobMerges).whenComplete((ignored, e) -> {
+                jobsInFlight.remove(partialAggregation);
+                permits.release();
+            });
+        });
+        jobsInFlight.addAll(partitionMerges);
+        partitionMerges.forEach(partitionMerge -> join(partitionMerge, jobsInFlight));
+    }
+
+    private int defaultMaxJobsInFlight(RunState<K, V, A> run) {
+        if (run.remoteWorkers() != null) {
+            return 2 * distributedConfig.getWorkers().size() * distributedConfig.getJobsPerWorker();
+        }
+        return 2 * (run.executor() instanceof ForkJoinPool forkJoinPool ? forkJoinPool.getParallelism()
+                : Runtime.getRuntime().availableProcessors());
+    }
+
+    private CompletableFuture<Void> mergeInto(int partition, CollectBuffer<K, V, A> collectBuffer,
+                                              CompletableFuture<Void> previousMerge,
+                                              CompletableFuture<List<Map<K, A>>> partialAggregation,
+                                              RunState<K, V, A> run) {
+        return previousMerge.thenCombineAsync(partialAggregation, (ignored, partialAggregationByPartition) -> {
+            RunMetricsRecorder.Sample sample = run.metrics().start();
+            partialAggregationByPartition.get(partition).forEach(collectBuffer::combine);
+            run.metrics().record(Phase.COLLECT, sample);
+            // The partial aggregation of this partition is no longer needed: let it be garbage collected
+            // while the other partitions are still merging theirs
+            partialAggregationByPartition.set(partition, null);
+            return null;
+        }, run.executor());
+    }
+
+    private void combineInto(List<CollectBuffer<K, V, A>> collectBuffers, List<Map<K, A>> partialAggregation,
+                             RunMetricsRecorder metrics) {
+        RunMetricsRecorder.Sample sample = metrics.start();
+        for (int partition = 0; partition < numberOfPartitions; partition++) {
+            partialAggregation.get(partition).forEach(collectBuffers.get(partition)::combine);
+        }
+        metrics.record(Phase.COLLECT, sample);
+    }
+
+    private List<Map<K, A>> executeAndAggregate(AJob<K, V> job, RunState<K, V, A> run) {
+        Optional<List<Map<K, A>>> partialAggregation = lookup(job, run);
+        if (partialAggregation.isEmpty()) {
+            partialAggregation = store(job, executeWithRetries(job, run));
+        }
+        return completed(job, partialAggregation, run);
+    }
+
+    /**
+     * As executeAndAggregate(), but on the executor of the run: the retries of a failed job are scheduled after their
+     * backoff instead of blocking a thread of the executor.
+     */
+    private CompletableFuture<List<Map<K, A>>> executeAndAggregateAsync(AJob<K, V> job, RunState<K, V, A> run) {
+        return CompletableFuture.supplyAsync(() -> lookup(job, run), run.executor())
+                .thenCompose(cachedAggregation -> cachedAggregation.isPresent()
+                        ? CompletableFuture.completedFuture(cachedAggregation)
+                        : executeWithRetriesAsync(job, run, 1, run.executor())
+                        .thenApply(partialAggregation -> store(job, partialAggregation)))
+                .thenApply(partialAggregation -> completed(job, partialAggregation, run));
+    }
+
+    private List<Map<K, A>> completed(AJob<K, V> job, Optional<List<Map<K, A>>> partialAggregation,
+                                      RunState<K, V, A> run) {
+        if (partialAggregation.isPresent() && run.checkpointLog() != null) {
+            // The job is saved before its partial aggregation is combined, and possibly modified, by the collect phase
+            run.checkpointLog().completed(job, partialAggregation.get());
+        }
+        return partialAggregation.orElseGet(this::emptyAggregation);
+    }
+
+    /**
+     * @return The partial aggregation of the job stored in the job cache, or an empty Optional if the job must be
+     * executed.
+     */
+    private Optional<List<Map<K, A>>> lookup(AJob<K, V> job, RunState<K, V, A> run) {
+        if (jobCache == null) {
+            return Optional.empty();
+        }
+        Optional<Map<K, A>> cachedAggregation = jobCache.lookup(job);
+        if (cachedAggregation.isPresent()) {
+            // The input of the job hasn't changed: its stored partial aggregation is used instead of executing it
+            run.jobCacheStatistics().record(1, 0);
+            return Optional.of(splitByPartition(cachedAggregation.get()));
+        }
+        run.jobCacheStatistics().record(0, 1);
+        return Optional.empty();
+    }
+
+    private Optional<List<Map<K, A>>> store(AJob<K, V> job, Optional<List<Map<K, A>>> partialAggregation) {
+        // A skipped job isn't stored, so it is executed again by the next run
+        if (jobCache != null) {
+            partialAggregation.ifPresent(aggregation -> jobCache.store(job, mergePartitions(aggregation)));
+        }
+        return partialAggregation;
+    }
+
+    /**
+     * Executes the job, retrying it as allowed by the failure policy. The backoff is waited on the current thread,
+     * which is the one of the sequential mode or of a stage of the pipeline.
+     *
+     * @return The partial aggregation of the job, or an empty Optional if the job has been skipped.
+     */
+    private Optional<List<Map<K, A>>> executeWithRetries(AJob<K, V> job, RunState<K, V, A> run) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return Optional.of(executeAttempt(job, run));
+            } catch (RuntimeException e) {
+                if (attempt > failurePolicy.getMaxRetries()) {
+                    skip(job, attempt, e, run.failures());
+                    return Optional.empty();
+                }
+                sleep(failurePolicy.backoff(attempt), e);
+            }
+        }
+    }
+
+    /**
+     * Executes an attempt of the job on the given executor and, if it fails and the failure policy allows it, the
+     * next attempt on the executor of the run once the backoff has elapsed.
+     *
+     * @return The partial aggregation of the job, or an empty Optional if the job has been skipped.
+     */
+    private CompletableFuture<Optional<List<Map<K, A>>>> executeWithRetriesAsync(AJob<K, V> job,
+                                                                               RunState<K, V, A> run, int attempt,
+                                                                               Executor attemptExecutor) {
+        return CompletableFuture.supplyAsync(() -> Optional.of(executeAttempt(job, run)), attemptExecutor)
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (!(cause instanceof RuntimeException failure)) {
+                        // An Error isn't retried
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    if (attempt > failurePolicy.getMaxRetries()) {
+                        skip(job, attempt, failure, run.failures());
+                        return CompletableFuture.completedFuture(Optional.empty());
+                    }
+                    Duration backoff = failurePolicy.backoff(attempt);
+                    return executeWithRetriesAsync(job, run, attempt + 1, CompletableFuture.delayedExecutor(
+                            backoff.toNanos(), TimeUnit.NANOSECONDS, run.executor()));
+                });
+    }
+
+    private List<Map<K, A>> executeAttempt(AJob<K, V> job, RunState<K, V, A> run) {
+        return run.remoteWorkers() == null ? executeAndAggregate(job, run.metrics()) : run.remoteWorkers().execute(job);
+    }
+
+    private void skip(AJob<K, V> job, int attempts, RuntimeException cause, List<JobFailure> failures) {
+        if (failurePolicy.getMaxFailures() == 0) {
+            // Fail-fast: the exception of the job stops the run, as without retries
+            throw cause;
+        }
+        int numberOfFailures;
+        synchronized (failures) {
+            failures.add(new JobFailure(job.toString(), attempts, cause));
+            numberOfFailures = failures.size();
+        }
+        if (numberOfFailures > failurePolicy.getMaxFailures()) {
+            throw new TooManyFailuresException(cause);
+        }
+    }
+
+    /**
+     * Waits the backoff before the next attempt. If the thread is interrupted (e.g. because the run is being
+     * stopped) the job isn't skipped: the exception of its last attempt stops the run.
+     */
+    private static void sleep(Duration backoff, RuntimeException lastFailure) {
+        try {
+            Thread.sleep(backoff.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw lastFailure;
+        }
+    }
+
+    private List<Map<K, A>> emptyAggregation() {
+        return new ArrayList<>(Collections.nCopies(numberOfPartitions, Map.of()));
+    }
+
+    private List<Map<K, A>> splitByPartition(Map<K, A> aggregation) {
+        if (numberOfPartitions == 1) {
+            return new ArrayList<>(List.of(aggregation));
+        }
+        List<Map<K, A>> aggregatedByPartition = new ArrayList<>(numberOfPartitions);
+        for (int partition = 0; partition < numberOfPartitions; partition++) {
+            aggregatedByPartition.add(new HashMap<>());
+        }
+        aggregation.forEach((key, accumulator) -> aggregatedByPartition.get(partitionOf(key)).put(key, accumulator));
+        return aggregatedByPartition;
+    }
+
+    private Map<K, A> mergePartitions(List<Map<K, A>> aggregatedByPartition) {
+        if (aggregatedByPartition.size() == 1) {
+            return aggregatedByPartition.get(0);
+        }
+        // The partitions have disjoint keys
+        Map<K, A> aggregation = new HashMap<>();
+        aggregatedByPartition.forEach(aggregation::putAll);
+        return aggregation;
+    }
+
+    private List<Map<K, A>> executeAndAggregate(AJob<K, V> job, RunMetricsRecorder metrics) {
+        // The stream of the job is closed once consumed, releasing its resources (e.g. the file being read), and
+        // the metrics of the job are recorded
+        try (Stream<Pair<K, V>> pairs = metrics.execute(job)) {
+            return aggregateByPartitionAndKey(pairs);
+        }
+    }
+
+    private List<Map<K, A>> aggregateByPartitionAndKey(Stream<Pair<K, V>> pairs) {
+        List<Map<K, A>> aggregatedByPartition = new ArrayList<>(numberOfPartitions);
+        for (int partition = 0; partition < numberOfPartitions; partition++) {
+            aggregatedByPartition.add(new HashMap<>());
+        }
+        pairs.forEach(pair -> aggregatedByPartition.get(partitionOf(pair.getKey()))
+                .compute(pair.getKey(), (key, accumulator) -> aggregationStrategy.accumulate(
+                        accumulator == null ? aggregationStrategy.createAccumulator() : accumulator,
+                        pair.getValue())));
+        return aggregatedByPartition;
+    }
+
+    private void output(List<CollectBuffer<K, V, A>> collectBuffers, LongAdder numberOfKeys,
+                        RunState<K, V, A> run) {
+        RunMetricsRecorder metrics = run.metrics();
+        if (collectBuffers.size() > 1 && outputStrategy instanceof PartitionedOutputStrategy<K, A> partitionedOutput) {
+            // Each partition is consumed independently, concurrently when the executor is available
+            List<CompletableFuture<?>> partitionOutputs = new ArrayList<>();
+            for (int partition = 0; partition < collectBuffers.size(); partition++) {
+                int index = partition;
+                Runnable outputPartition = () -> {
+                    RunMetricsRecorder.Sample sample = metrics.start();
+                    try (Stream<Pair<K, A>> partitionOutput = collectBuffers.get(index).drain()
+                            .peek(pair -> countKey(pair, numberOfKeys, metrics))) {
+                        partitionedOutput.outputPartition(index, partitionOutput);
+                    }
+                    metrics.record(Phase.OUTPUT, sample);
+                };
+                if (run.executor() == null) {
+                    outputPartition.run();
+                } else {
+                    partitionOutputs.add(CompletableFuture.runAsync(outputPartition, run.executor()));
+                }
+            }
+            partitionOutputs.forEach(partitionOutput -> join(partitionOutput, partitionOutputs));
+        } else {
+            // The partitions are concatenated in a single stream
+            RunMetricsRecorder.Sample sample = metrics.start();
+            try (Stream<Pair<K, A>> collectOutput = collectBuffers.size() == 1
+                    ? collectBuffers.get(0).drain()
+                    : collectBuffers.stream().flatMap(CollectBuffer::drain)) {
+                outputStrategy.output(collectOutput.peek(pair -> countKey(pair, numberOfKeys, metrics)));
+            }
+            metrics.record(Phase.OUTPUT, sample);
+        }
+    }
+
+    private void countKey(Pair<K, A> pair, LongAdder numberOfKeys, RunMetricsRecorder metrics) {
+        numberOfKeys.increment();
+        metrics.recordGroup(pair.getValue());
+    }
+
+    private void checkKeysCanLeaveProcess(AJob<K, V> job) {
+        if (!(job instanceof ProcessLocalKeys)) {
+            return;
+        }
+        // The keys of the job would be written out of the memory of the run, without what gives them a meaning
+        if (jobCache != null || checkpointConfig != null || distributedConfig != null
+                || collectStrategy instanceof ExternalSortCollectStrategy) {
+            throw new IllegalStateException("The keys of " + job + " are local to this process: they can't be"
+                    + " cached, checkpointed, sent to workers or spilled to disk");
+        }
+    }
+
+    private int partitionOf(K key) {
+        return numberOfPartitions == 1 ? 0 : partitioner.partition(key, numberOfPartitions);
+    }
+
+    private <T> T join(CompletableFuture<T> future, Collection<? extends CompletableFuture<?>> allFutures) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // A task has failed: the remaining ones are useless, so they are cancelled
+            allFutures.forEach(f -> f.cancel(false));
+            // Rethrow the exception raised by the task (e.g. JobException) as in the sequential mode
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * State of a run shared by the threads working on it.
+     */
+    private record RunState<K, V, A>(Executor executor, CacheStatistics jobCacheStatistics,
+                                     RunMetricsRecorder metrics, List<JobFailure> failures,
+                                     CheckpointLog<K, A> checkpointLog, RemoteWorkers<K, V, A> remoteWorkers) {
     }
 }
@@ -0,0 +1,230 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.exception.WorkerException;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.Partitioner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Worker of the distributed mode of the JobScheduler, usually run in its own JVM: it receives the descriptions of
+ * the jobs from the coordinators over sockets, executes them on its threads and sends back the partial aggregation
+ * of each job, already split by partition (map-side combine and shuffle).
+ * The aggregation strategy, the partitioner and the codecs must be the ones of the coordinator.
+ * The coordinators are not authenticated, and a job can read any file the worker can (e.g. a CiaoWordReaderJob), so
+ * by default the worker listens only on the loopback interface: bind it to another address only in a trusted network.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values emitted by the jobs.
+ * @param <A> The type of the accumulators.
+ */
+public class JobWorker<K, V, A> implements Runnable, AutoCloseable {
+    private static final Codec<String> MESSAGE_CODEC = Codec.utf8();
+
+    private final ServerSocket serverSocket;
+    private final Codec<AJob<K, V>> jobCodec;
+    private final AggregationStrategy<K, V, A> aggregationStrategy;
+    private final Codec<K> keyCodec;
+    private final Codec<A> accumulatorCodec;
+    private Partitioner<K> partitioner = Partitioner.hash();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts listening for the coordinators of this host, on the loopback interface: they are served by run().
+     *
+     * @param port                The port on which the worker listens, or 0 for any free port (see getPort()).
+     * @param jobCodec            The codec of the descriptions of the jobs.
+     * @param aggregationStrategy The strategy aggregating the values of each key of a job.
+     * @param keyCodec            The codec of the keys.
+     * @param accumulatorCodec    The codec of the accumulators.
+     * @throws WorkerException If the port can't be used.
+     */
+    public JobWorker(int port, Codec<AJob<K, V>> jobCodec, AggregationStrategy<K, V, A> aggregationStrategy,
+                     Codec<K> keyCodec, Codec<A> accumulatorCodec) {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), jobCodec, aggregationStrategy, keyCodec,
+                accumulatorCodec);
+    }
+
+    /**
+     * Starts listening for coordinators on the given address (e.g. the address of a network interface, to serve
+     * remote coordinators): they are served by run().
+     *
+     * @param bindAddress The address and the port on which the worker listens (port 0 for any free port).
+     * @throws WorkerException If the address can't be used.
+     * @see #JobWorker(int, Codec, AggregationStrategy, Codec, Codec)
+     */
+    public JobWorker(InetSocketAddress bindAddress, Codec<AJob<K, V>> jobCodec,
+                     AggregationStrategy<K, V, A> aggregationStrategy, Codec<K> keyCodec, Codec<A> accumulatorCodec) {
+        try {
+            this.serverSocket = new ServerSocket();
+            serverSocket.bind(bindAddress);
+        } catch (IOException e) {
+            throw new WorkerException(e);
+        }
+        this.jobCodec = jobCodec;
+        this.aggregationStrategy = aggregationStrategy;
+        this.keyCodec = keyCodec;
+        this.accumulatorCodec = accumulatorCodec;
+    }
+
+    /**
+     * @param partitioner The strategy that assigns each key to a partition (Partitioner.hash() by default).
+     * @return This worker.
+     */
+    public JobWorker<K, V, A> withPartitioner(Partitioner<K> partitioner) {
+        this.partitioner = partitioner;
+        return this;
+    }
+
+    /**
+     * @param threads The number of jobs executed at the same time (the number of available cores by default).
+     * @return This worker.
+     */
+    public JobWorker<K, V, A> withThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @return The port on which the worker listens.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Serves the coordinators until the worker is closed.
+     */
+    @Override
+    public void run() {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                Thread connection = new Thread(() -> serve(socket, executor),
+                        "job-worker-" + socket.getRemoteSocketAddress());
+                connection.setDaemon(true);
+                connection.start();
+            }
+        } catch (IOException e) {
+            // The worker has been closed: stop serving
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops listening and drops the connections to the coordinators, which reassign the jobs in progress.
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            throw new WorkerException(e);
+        }
+        connections.forEach(this::close);
+    }
+
+    private void serve(Socket socket, ExecutorService executor) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != WorkerProtocol.MAGIC) {
+                throw new IOException("Not a coordinator: " + socket.getRemoteSocketAddress());
+            }
+            int numberOfPartitions = in.readInt();
+            while (true) {
+                byte type = in.readByte();
+                if (type != WorkerProtocol.JOB) {
+                    throw new IOException("Unexpected message from coordinator: " + type);
+                }
+                long request = in.readLong();
+                AJob<K, V> job = jobCodec.read(in);
+                executor.execute(() -> execute(request, job, numberOfPartitions, out));
+            }
+        } catch (IOException | RejectedExecutionException e) {
+            // The coordinator has closed the connection, or the worker has been closed
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void execute(long request, AJob<K, V> job, int numberOfPartitions, DataOutputStream out) {
+        // The message is encoded outside the lock, so the results of the other jobs are sent meanwhile
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        DataOutputStream messageOut = new DataOutputStream(message);
+        try {
+            try {
+                List<Map<K, A>> partialAggregation = aggregateByPartitionAndKey(job, numberOfPartitions);
+                messageOut.writeByte(WorkerProtocol.RESULT);
+                messageOut.writeLong(request);
+                WorkerProtocol.writePartitions(messageOut, partialAggregation, keyCodec, accumulatorCodec);
+            } catch (Throwable e) {
+                // The job has failed (even with an Error, since the coordinator waits for a reply): the coordinator
+                // applies its failure policy
+                message.reset();
+                messageOut.writeByte(WorkerProtocol.FAILED);
+                messageOut.writeLong(request);
+                MESSAGE_CODEC.write(messageOut, String.valueOf(e));
+            }
+            synchronized (out) {
+                message.writeTo(out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The connection has been lost: the coordinator reassigns the job
+        }
+    }
+
+    private List<Map<K, A>> aggregateByPartitionAndKey(AJob<K, V> job, int numberOfPartitions) {
+        List<Map<K, A>> aggregatedByPartition = new ArrayList<>(numberOfPartitions);
+        for (int partition = 0; partition < numberOfPartitions; partition++) {
+            aggregatedByPartition.add(new HashMap<>());
+        }
+        try (Stream<Pair<K, V>> pairs = job.execute()) {
+            pairs.forEach(pair -> aggregatedByPartition.get(numberOfPartitions == 1 ? 0
+                            : partitioner.partition(pair.getKey(), numberOfPartitions))
+                    .compute(pair.getKey(), (key, accumulator) -> aggregationStrategy.accumulate(
+                            accumulator == null ? aggregationStrategy.createAccumulator() : accumulator,
+                            pair.getValue())));
+        }
+        return aggregatedByPartition;
+    }
+
+    private void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // The connection is no longer used
+        }
+    }
+}
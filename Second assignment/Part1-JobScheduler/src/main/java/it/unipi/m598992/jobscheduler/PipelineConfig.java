@@ -0,0 +1,79 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.jobscheduler.metrics.StageStatistics;
+
+import java.util.List;
+
+/**
+ * Configuration of the staged pipeline mode of the JobScheduler (see JobScheduler.withStagedPipeline()):
+ * the number of workers of each stage and the capacity of the bounded queues between them.
+ * It also exposes the statistics of the stages of the current (or last) run, which can be read while it is running.
+ */
+public final class PipelineConfig {
+    private int computeWorkers = Runtime.getRuntime().availableProcessors();
+    private int collectWorkers = 1;
+    private int queueCapacity = 16;
+    private volatile List<StageStatistics> statistics = List.of();
+
+    /**
+     * @param computeWorkers The number of threads executing the jobs (the number of available cores by default).
+     * @return This configuration.
+     */
+    public PipelineConfig withComputeWorkers(int computeWorkers) {
+        this.computeWorkers = requirePositive(computeWorkers, "number of compute workers");
+        return this;
+    }
+
+    /**
+     * @param collectWorkers The number of threads combining the partial aggregations into the collect buffers
+     *                       (1 by default); each partition is collected by a single worker, so at most one worker
+     *                       per partition is used.
+     * @return This configuration.
+     */
+    public PipelineConfig withCollectWorkers(int collectWorkers) {
+        this.collectWorkers = requirePositive(collectWorkers, "number of collect workers");
+        return this;
+    }
+
+    /**
+     * @param queueCapacity The maximum number of items waiting between two stages (16 by default): when a queue is
+     *                      full the previous stage blocks, which bounds the memory used by the pending jobs and
+     *                      partial aggregations.
+     * @return This configuration.
+     */
+    public PipelineConfig withQueueCapacity(int queueCapacity) {
+        this.queueCapacity = requirePositive(queueCapacity, "queue capacity");
+        return this;
+    }
+
+    public int getComputeWorkers() {
+        return computeWorkers;
+    }
+
+    public int getCollectWorkers() {
+        return collectWorkers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return The statistics of the emit, compute and collect stages of the current or last run (empty before
+     * the first run).
+     */
+    public List<StageStatistics> getStatistics() {
+        return statistics;
+    }
+
+    void setStatistics(List<StageStatistics> statistics) {
+        this.statistics = statistics;
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("The " + name + " must be positive: " + value);
+        }
+        return value;
+    }
+}
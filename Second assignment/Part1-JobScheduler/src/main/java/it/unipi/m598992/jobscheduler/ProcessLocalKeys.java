@@ -0,0 +1,10 @@
+package it.unipi.m598992.jobscheduler;
+
+/**
+ * Implemented by the jobs whose keys are meaningful only in the JVM that executes the run (e.g. identifiers assigned
+ * by a dictionary kept in memory). Their keys can't leave that JVM or outlive the run, so the JobScheduler rejects
+ * them when they would be stored by a job cache, saved by a checkpoint, sent to distributed workers or spilled to
+ * disk by an ExternalSortCollectStrategy.
+ */
+public interface ProcessLocalKeys {
+}
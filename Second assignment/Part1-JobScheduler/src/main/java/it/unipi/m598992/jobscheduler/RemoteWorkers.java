@@ -0,0 +1,237 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.exception.JobException;
+import it.unipi.m598992.jobscheduler.exception.WorkerException;
+import it.unipi.m598992.jobscheduler.strategy.Partitioner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Connections of the coordinator, i.e. the JobScheduler in distributed mode, to the JobWorkers of a run.
+ * Each job is sent to the worker with the fewest jobs in progress, which executes it and sends back its partial
+ * aggregation, already split by partition. When the connection to a worker is lost (e.g. because the worker has
+ * crashed) or a worker doesn't send a result within the job timeout, its jobs in progress are sent to the other
+ * workers. The partition of each key received is checked against the partitioner of the coordinator, so a worker
+ * configured with a different partitioner fails the job instead of mixing the partitions.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values emitted by the jobs.
+ * @param <A> The type of the accumulators.
+ */
+final class RemoteWorkers<K, V, A> implements AutoCloseable {
+    private static final Codec<String> MESSAGE_CODEC = Codec.utf8();
+
+    private final DistributedConfig<K, V, A> config;
+    private final int numberOfPartitions;
+    private final Partitioner<K> partitioner;
+    // The workers still reachable
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicLong nextRequest = new AtomicLong();
+
+    /**
+     * Connects to the workers of the configuration.
+     *
+     * @param partitioner The partitioner of the coordinator, which must be the one of the workers.
+     * @throws WorkerException If no worker can be reached.
+     */
+    RemoteWorkers(DistributedConfig<K, V, A> config, int numberOfPartitions, Partitioner<K> partitioner) {
+        this.config = config;
+        this.numberOfPartitions = numberOfPartitions;
+        this.partitioner = partitioner;
+        IOException failure = null;
+        for (InetSocketAddress address : config.getWorkers()) {
+            try {
+                connections.add(new Connection(address));
+            } catch (IOException e) {
+                // The jobs are sent to the other workers
+                failure = e;
+            }
+        }
+        if (connections.isEmpty()) {
+            throw new WorkerException(failure);
+        }
+    }
+
+    /**
+     * Executes the job on a worker and waits for its partial aggregation.
+     *
+     * @throws JobException    If the job has failed on the worker.
+     * @throws WorkerException If the connections to all the workers have been lost.
+     * @throws IllegalStateException If the worker partitions the keys differently from the coordinator.
+     */
+    List<Map<K, A>> execute(AJob<K, V> job) {
+        while (true) {
+            Connection connection = connections.stream()
+                    .min(Comparator.comparingInt(Connection::jobsInProgress))
+                    .orElseThrow(() -> new WorkerException(new IOException("All the workers have been lost")));
+            try {
+                return connection.submit(job)
+                        .orTimeout(config.getJobTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                        .join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    // The worker is hung, although connected: its jobs are reassigned
+                    connection.lose(new IOException("No result from worker " + connection.address + " within "
+                            + config.getJobTimeout()));
+                    continue;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                if (!(e.getCause() instanceof WorkerException)) {
+                    throw (RuntimeException) e.getCause();
+                }
+                // The worker has been lost: the job is reassigned
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        connections.forEach(Connection::close);
+    }
+
+    private final class Connection {
+        private final InetSocketAddress address;
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final Map<Long, CompletableFuture<List<Map<K, A>>>> jobsInProgress = new ConcurrentHashMap<>();
+        private volatile boolean lost;
+
+        Connection(InetSocketAddress address) throws IOException {
+            this.address = address;
+            this.socket = new Socket();
+            try {
+                socket.connect(address, (int) config.getConnectTimeout().toMillis());
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.writeInt(WorkerProtocol.MAGIC);
+                out.writeInt(numberOfPartitions);
+                out.flush();
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            Thread reader = new Thread(() -> readResults(in), "job-scheduler-worker-" + address);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        int jobsInProgress() {
+            return jobsInProgress.size();
+        }
+
+        CompletableFuture<List<Map<K, A>>> submit(AJob<K, V> job) {
+            long request = nextRequest.getAndIncrement();
+            CompletableFuture<List<Map<K, A>>> result = new CompletableFuture<>();
+            jobsInProgress.put(request, result);
+            try {
+                synchronized (out) {
+                    out.writeByte(WorkerProtocol.JOB);
+                    out.writeLong(request);
+                    config.getJobCodec().write(out, job);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                lose(e);
+            }
+            if (lost) {
+                // The connection has been lost before the job could be registered by lose()
+                result.completeExceptionally(new WorkerException(new EOFException("Lost worker " + address)));
+            }
+            return result;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The connection is no longer used
+            }
+        }
+
+        private void readResults(DataInputStream in) {
+            // A request is removed by this thread, or by lose() once the connection has been lost
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    long request = in.readLong();
+                    if (type == WorkerProtocol.RESULT) {
+                        List<Map<K, A>> partialAggregation = WorkerProtocol.readPartitions(in, numberOfPartitions,
+                                config.getKeyCodec(), config.getAccumulatorCodec());
+                        Optional<String> misplacedKey = checkPartitions(partialAggregation);
+                        if (misplacedKey.isPresent()) {
+                            complete(request, result -> result.completeExceptionally(new IllegalStateException(
+                                    "Worker " + address + " doesn't use the partitioner of the coordinator: "
+                                            + misplacedKey.get())));
+                        } else {
+                            complete(request, result -> result.complete(partialAggregation));
+                        }
+                    } else if (type == WorkerProtocol.FAILED) {
+                        String message = MESSAGE_CODEC.read(in);
+                        complete(request, result -> result.completeExceptionally(
+                                new JobException(new IOException("Failed on worker " + address + ": " + message))));
+                    } else {
+                        throw new IOException("Unexpected message from worker " + address + ": " + type);
+                    }
+                }
+            } catch (IOException e) {
+                lose(e);
+            }
+        }
+
+        private Optional<String> checkPartitions(List<Map<K, A>> partialAggregation) {
+            if (numberOfPartitions == 1) {
+                return Optional.empty();
+            }
+            for (int partition = 0; partition < numberOfPartitions; partition++) {
+                for (K key : partialAggregation.get(partition).keySet()) {
+                    int expected = partitioner.partition(key, numberOfPartitions);
+                    if (expected != partition) {
+                        return Optional.of("key " + key + " in partition " + partition + " instead of " + expected);
+                    }
+                }
+            }
+            return Optional.empty();
+        }
+
+        private void complete(long request, Consumer<CompletableFuture<List<Map<K, A>>>> completion) {
+            CompletableFuture<List<Map<K, A>>> result = jobsInProgress.remove(request);
+            if (result != null) {
+                completion.accept(result);
+            }
+        }
+
+        private void lose(IOException cause) {
+            lost = true;
+            connections.remove(this);
+            close();
+            // The jobs in progress are reassigned by the threads waiting for them
+            jobsInProgress.keySet().forEach(request ->
+                    complete(request, result -> result.completeExceptionally(new WorkerException(cause))));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.metrics.InputMetrics;
+import it.unipi.m598992.jobscheduler.metrics.JobMetrics;
+import it.unipi.m598992.jobscheduler.metrics.MetricsListener;
+import it.unipi.m598992.jobscheduler.metrics.Phase;
+import it.unipi.m598992.jobscheduler.metrics.PhaseMetrics;
+import it.unipi.m598992.jobscheduler.metrics.RunMetrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Collects the metrics of a run of the JobScheduler and notifies them to the listeners.
+ * The resources used by a phase are measured on the thread working on it, between the start() of a sample and its
+ * record(): wall time, CPU time and allocated memory of the thread.
+ */
+final class RunMetricsRecorder {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    // Available on HotSpot: the memory allocated by a thread
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            THREADS instanceof com.sun.management.ThreadMXBean allocations
+                    && allocations.isThreadAllocatedMemorySupported() ? allocations : null;
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported()
+            && THREADS.isThreadCpuTimeEnabled();
+
+    private final List<MetricsListener> listeners;
+    private final long startTime = System.nanoTime();
+    private final long startGcCount;
+    private final long startGcTime;
+    private final LongAdder[] wallNanos = newAdders();
+    private final LongAdder[] cpuNanos = newAdders();
+    private final LongAdder[] allocatedBytes = newAdders();
+    private final LongAdder jobs = new LongAdder();
+    private final LongAdder pairs = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder tokensRead = new LongAdder();
+    private final LongAccumulator peakGroupSize = new LongAccumulator(Math::max, 0);
+
+    RunMetricsRecorder(List<MetricsListener> listeners) {
+        this.listeners = listeners;
+        this.startGcCount = gcCount();
+        this.startGcTime = gcTime();
+    }
+
+    /**
+     * @return A sample of the resources used so far by the current thread.
+     */
+    Sample start() {
+        return new Sample(System.nanoTime(), cpuTime(), allocatedBytes());
+    }
+
+    /**
+     * Adds the resources used by the current thread since the sample was started to the phase.
+     */
+    void record(Phase phase, Sample sample) {
+        record(phase, sample, start());
+    }
+
+    /**
+     * Executes the job: the returned stream records the metrics of the job when it is closed. A job whose stream is
+     * closed before its end (e.g. because it has failed) is not counted, and neither are its pairs, but the resources
+     * it has used are added to the compute phase.
+     */
+    <K, V> Stream<Pair<K, V>> execute(AJob<K, V> job) {
+        Sample sample = start();
+        Stream<Pair<K, V>> pairs = job.execute();
+        Spliterator<Pair<K, V>> source = pairs.spliterator();
+        // The stream of a job is consumed by a single thread
+        long[] jobPairs = new long[1];
+        boolean[] completed = new boolean[1];
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<Pair<K, V>>(source.estimateSize(),
+                source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED)) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Pair<K, V>> action) {
+                boolean advanced = source.tryAdvance(pair -> {
+                    jobPairs[0]++;
+                    action.accept(pair);
+                });
+                completed[0] = !advanced;
+                return advanced;
+            }
+        }, false).onClose(() -> {
+            try {
+                pairs.close();
+            } finally {
+                recordJob(job, sample, jobPairs[0], completed[0]);
+            }
+        });
+    }
+
+    /**
+     * Records the time spent by the given phase to produce each element of the stream, e.g. the emission of the jobs.
+     * The consumption of the elements is not included.
+     */
+    <T> Stream<T> measure(Phase phase, Stream<T> stream) {
+        Spliterator<T> source = stream.spliterator();
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(source.estimateSize(),
+                source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED)) {
+            private T next;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                Sample sample = start();
+                boolean advanced = source.tryAdvance(element -> next = element);
+                record(phase, sample);
+                if (advanced) {
+                    T element = next;
+                    next = null;
+                    action.accept(element);
+                }
+                return advanced;
+            }
+        }, false).onClose(stream::close);
+    }
+
+    /**
+     * Updates the peak group size with the size of an accumulator of the output.
+     */
+    void recordGroup(Object accumulator) {
+        if (accumulator instanceof Number count) {
+            peakGroupSize.accumulate(count.longValue());
+        } else if (accumulator instanceof Collection<?> values) {
+            peakGroupSize.accumulate(values.size());
+        }
+    }
+
+    /**
+     * Notifies the metrics of the phases and of the run to the listeners.
+     *
+     * @param distinctKeys The number of keys passed to the output strategy.
+     * @return The metrics of the run.
+     */
+    RunMetrics finish(long distinctKeys) {
+        List<PhaseMetrics> phases = new ArrayList<>();
+        for (Phase phase : Phase.values()) {
+            int index = phase.ordinal();
+            phases.add(new PhaseMetrics(phase, Duration.ofNanos(wallNanos[index].sum()),
+                    Duration.ofNanos(cpuNanos[index].sum()), allocatedBytes[index].sum()));
+        }
+        RunMetrics runMetrics = new RunMetrics(Duration.ofNanos(System.nanoTime() - startTime), phases, jobs.sum(),
+                pairs.sum(), bytesRead.sum(), tokensRead.sum(), distinctKeys, peakGroupSize.get(),
+                gcCount() - startGcCount, Duration.ofMillis(gcTime() - startGcTime));
+        for (MetricsListener listener : listeners) {
+            phases.forEach(listener::phaseCompleted);
+            listener.runCompleted(runMetrics);
+        }
+        return runMetrics;
+    }
+
+    private void record(Phase phase, Sample start, Sample end) {
+        int index = phase.ordinal();
+        wallNanos[index].add(end.wallTime() - start.wallTime());
+        cpuNanos[index].add(end.cpuTime() - start.cpuTime());
+        allocatedBytes[index].add(end.allocatedBytes() - start.allocatedBytes());
+    }
+
+    private void recordJob(AJob<?, ?> job, Sample sample, long jobPairs, boolean completed) {
+        Sample end = start();
+        record(Phase.COMPUTE, sample, end);
+        if (!completed) {
+            // A failed attempt: the job is counted by the attempt that completes it, if any
+            return;
+        }
+        long jobBytes = job instanceof InputMetrics input ? input.getBytesRead() : 0;
+        long jobTokens = job instanceof InputMetrics input ? input.getTokensRead() : 0;
+        jobs.increment();
+        pairs.add(jobPairs);
+        bytesRead.add(jobBytes);
+        tokensRead.add(jobTokens);
+        JobMetrics jobMetrics = new JobMetrics(job.toString(), Duration.ofNanos(end.wallTime() - sample.wallTime()),
+                Duration.ofNanos(end.cpuTime() - sample.cpuTime()), end.allocatedBytes() - sample.allocatedBytes(),
+                jobPairs, jobBytes, jobTokens);
+        listeners.forEach(listener -> listener.jobCompleted(jobMetrics));
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[Phase.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Resources used by a thread up to a point in time.
+     */
+    record Sample(long wallTime, long cpuTime, long allocatedBytes) {
+    }
+}
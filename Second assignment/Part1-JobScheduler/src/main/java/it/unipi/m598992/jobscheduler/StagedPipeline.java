@@ -0,0 +1,186 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.metrics.Phase;
+import it.unipi.m598992.jobscheduler.metrics.StageStatistics;
+import it.unipi.m598992.jobscheduler.strategy.CollectBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Emit, compute and collect phases of a run of the JobScheduler executed as a pipeline of stages, each with its own
+ * threads, connected by bounded queues: the emit stage pulls the jobs from the stream of jobs, the compute workers
+ * execute them and aggregate their pairs, the collect workers combine the partial aggregations into the buffers.
+ * A full queue blocks the stage feeding it, so a slow stage throttles the previous ones instead of letting the
+ * pending items pile up in memory.
+ * The partial aggregations are combined in completion order, not in emission order.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values emitted by the jobs.
+ * @param <A> The type of the accumulators.
+ */
+final class StagedPipeline<K, V, A> {
+    private final PipelineConfig config;
+    // Executes a job and aggregates its pairs by partition and key
+    private final Function<AJob<K, V>, List<Map<K, A>>> computeStage;
+    private final List<CollectBuffer<K, V, A>> collectBuffers;
+    private final RunMetricsRecorder metrics;
+    private final int collectWorkers;
+    // An empty Optional marks the end of the items
+    private final BlockingQueue<Optional<AJob<K, V>>> jobQueue;
+    private final List<BlockingQueue<Optional<List<Map<K, A>>>>> collectQueues = new ArrayList<>();
+    private final StageStatistics emitStatistics;
+    private final StageStatistics computeStatistics;
+    private final StageStatistics collectStatistics;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    StagedPipeline(PipelineConfig config, Function<AJob<K, V>, List<Map<K, A>>> computeStage,
+                   List<CollectBuffer<K, V, A>> collectBuffers, RunMetricsRecorder metrics) {
+        this.config = config;
+        this.computeStage = computeStage;
+        this.collectBuffers = collectBuffers;
+        this.metrics = metrics;
+        this.collectWorkers = Math.min(config.getCollectWorkers(), collectBuffers.size());
+        this.jobQueue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        for (int i = 0; i < collectWorkers; i++) {
+            collectQueues.add(new ArrayBlockingQueue<>(config.getQueueCapacity()));
+        }
+        this.emitStatistics = new StageStatistics("emit", 1, () -> 0);
+        this.computeStatistics = new StageStatistics("compute", config.getComputeWorkers(), jobQueue::size);
+        this.collectStatistics = new StageStatistics("collect", collectWorkers,
+                () -> collectQueues.stream().mapToInt(BlockingQueue::size).sum());
+        config.setStatistics(List.of(emitStatistics, computeStatistics, collectStatistics));
+    }
+
+    /**
+     * Runs the stages until all the jobs have been executed and collected.
+     *
+     * @param emitOutput The stream of jobs.
+     * @throws RuntimeException The first exception raised by a stage (e.g. JobException); the other stages are
+     *                          stopped.
+     */
+    void run(Stream<AJob<K, V>> emitOutput) {
+        addWorker("emit", () -> emit(emitOutput));
+        AtomicInteger runningComputeWorkers = new AtomicInteger(config.getComputeWorkers());
+        for (int i = 0; i < config.getComputeWorkers(); i++) {
+            addWorker("compute-" + i, () -> compute(runningComputeWorkers));
+        }
+        for (int i = 0; i < collectWorkers; i++) {
+            int collectWorker = i;
+            addWorker("collect-" + i, () -> collect(collectWorker));
+        }
+        // The workers are started only once all of them have been created, since a failing worker interrupts them
+        workers.forEach(Thread::start);
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the pipeline", e);
+        }
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (cause instanceof Error error) {
+            throw error;
+        }
+    }
+
+    private void emit(Stream<AJob<K, V>> emitOutput) throws InterruptedException {
+        for (AJob<K, V> job : (Iterable<AJob<K, V>>) emitOutput::iterator) {
+            put(jobQueue, Optional.of(job), emitStatistics, computeStatistics);
+            emitStatistics.recordItem();
+        }
+        // One end marker for each compute worker
+        for (int i = 0; i < config.getComputeWorkers(); i++) {
+            put(jobQueue, Optional.empty(), emitStatistics, computeStatistics);
+        }
+    }
+
+    private void compute(AtomicInteger runningComputeWorkers) throws InterruptedException {
+        Optional<AJob<K, V>> job;
+        while ((job = take(jobQueue, computeStatistics)).isPresent()) {
+            List<Map<K, A>> partialAggregation = computeStage.apply(job.get());
+            computeStatistics.recordItem();
+            // Each collect worker receives the partial aggregation and combines only the partitions it owns
+            for (BlockingQueue<Optional<List<Map<K, A>>>> collectQueue : collectQueues) {
+                put(collectQueue, Optional.of(partialAggregation), computeStatistics, collectStatistics);
+            }
+        }
+        if (runningComputeWorkers.decrementAndGet() == 0) {
+            // The last compute worker marks the end of the partial aggregations
+            for (BlockingQueue<Optional<List<Map<K, A>>>> collectQueue : collectQueues) {
+                put(collectQueue, Optional.empty(), computeStatistics, collectStatistics);
+            }
+        }
+    }
+
+    private void collect(int collectWorker) throws InterruptedException {
+        BlockingQueue<Optional<List<Map<K, A>>>> collectQueue = collectQueues.get(collectWorker);
+        Optional<List<Map<K, A>>> partialAggregation;
+        while ((partialAggregation = take(collectQueue, collectStatistics)).isPresent()) {
+            RunMetricsRecorder.Sample sample = metrics.start();
+            for (int partition = collectWorker; partition < collectBuffers.size(); partition += collectWorkers) {
+                partialAggregation.get().get(partition).forEach(collectBuffers.get(partition)::combine);
+            }
+            metrics.record(Phase.COLLECT, sample);
+            collectStatistics.recordItem();
+        }
+    }
+
+    private <T> void put(BlockingQueue<T> queue, T item, StageStatistics producer, StageStatistics consumer)
+            throws InterruptedException {
+        if (!queue.offer(item)) {
+            // The queue is full: wait for the next stage (backpressure)
+            long start = System.nanoTime();
+            queue.put(item);
+            producer.recordBlocked(System.nanoTime() - start);
+        }
+        consumer.recordQueueDepth(queue.size());
+    }
+
+    private <T> T take(BlockingQueue<T> queue, StageStatistics consumer) throws InterruptedException {
+        T item = queue.poll();
+        if (item == null) {
+            // The queue is empty: wait for the previous stage
+            long start = System.nanoTime();
+            item = queue.take();
+            consumer.recordIdle(System.nanoTime() - start);
+        }
+        return item;
+    }
+
+    private void addWorker(String name, StageBody body) {
+        Thread worker = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                // Another stage has failed: stop
+            } catch (RuntimeException | Error e) {
+                // The first failure stops all the stages
+                if (failure.compareAndSet(null, e)) {
+                    workers.forEach(Thread::interrupt);
+                }
+            }
+        }, "job-scheduler-" + name);
+        worker.setDaemon(true);
+        workers.add(worker);
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws InterruptedException;
+    }
+}
@@ -0,0 +1,64 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.jobscheduler.codec.BlockFormat;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.codec.Varints;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messages exchanged by the coordinator (the JobScheduler in distributed mode) and a JobWorker over a socket.
+ * The coordinator opens the connection with MAGIC and the number of partitions, then sends JOB messages (request
+ * identifier and description of the job); the worker answers each of them, in any order, with a RESULT message
+ * (request identifier and partial aggregation of each partition, in a compressed block of the BlockFormat) or a
+ * FAILED message (request identifier and description of the exception raised by the job).
+ */
+final class WorkerProtocol {
+    // Identifies the coordinators and the version of the protocol
+    static final int MAGIC = 0x4A534302;
+    static final byte JOB = 1;
+    static final byte RESULT = 2;
+    static final byte FAILED = 3;
+
+    private WorkerProtocol() {
+    }
+
+    static <K, A> void writePartitions(DataOutput out, List<Map<K, A>> aggregatedByPartition, Codec<K> keyCodec,
+                                       Codec<A> accumulatorCodec) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        DataOutputStream blockOut = new DataOutputStream(block);
+        for (Map<K, A> aggregation : aggregatedByPartition) {
+            Varints.writeVarInt(blockOut, aggregation.size());
+            for (Map.Entry<K, A> entry : aggregation.entrySet()) {
+                keyCodec.write(blockOut, entry.getKey());
+                accumulatorCodec.write(blockOut, entry.getValue());
+            }
+        }
+        BlockFormat.writeBlock(out, block.toByteArray(), block.size(), true);
+    }
+
+    static <K, A> List<Map<K, A>> readPartitions(DataInput in, int numberOfPartitions, Codec<K> keyCodec,
+                                                 Codec<A> accumulatorCodec) throws IOException {
+        DataInputStream blockIn = new DataInputStream(new ByteArrayInputStream(BlockFormat.readBlock(in)));
+        List<Map<K, A>> aggregatedByPartition = new ArrayList<>(numberOfPartitions);
+        for (int partition = 0; partition < numberOfPartitions; partition++) {
+            int entries = Varints.readVarInt(blockIn);
+            Map<K, A> aggregation = new HashMap<>();
+            for (int entry = 0; entry < entries; entry++) {
+                aggregation.put(keyCodec.read(blockIn), accumulatorCodec.read(blockIn));
+            }
+            aggregatedByPartition.add(aggregation);
+        }
+        return aggregatedByPartition;
+    }
+}
@@ -0,0 +1,100 @@
+package it.unipi.m598992.jobscheduler.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Block-based format of the data persisted or moved by the scheduler. Each block is made of a header, holding the
+ * length of the data, the length of the stored bytes and the CRC-32C of the data, followed by the stored bytes: the
+ * data compressed with an LZ4-style compressor when it is smaller that way, the data itself otherwise.
+ * The checksum detects the blocks corrupted or partially written, and the lengths the blocks truncated.
+ * A block with no data marks the end of a sequence of blocks.
+ */
+public final class BlockFormat {
+    // Lengths and checksum
+    public static final int HEADER_SIZE = 3 * Integer.BYTES;
+    // Limit of the length of the data of a block, so a corrupted header can't cause huge allocations
+    public static final int MAX_BLOCK_LENGTH = 1 << 30;
+
+    private BlockFormat() {
+    }
+
+    /**
+     * Writes a block.
+     *
+     * @param out      The destination of the block.
+     * @param data     The data of the block.
+     * @param length   The number of bytes of data in the block.
+     * @param compress Whether the data is compressed; it is stored as is anyway if compressing doesn't shrink it.
+     * @throws IOException If there's an issue with writing to the destination.
+     */
+    public static void writeBlock(DataOutput out, byte[] data, int length, boolean compress) throws IOException {
+        if (length > MAX_BLOCK_LENGTH) {
+            throw new IllegalArgumentException("Block too long: " + length);
+        }
+        byte[] stored = data;
+        int storedLength = length;
+        if (compress && length > 0) {
+            // Only a compressed block shorter than the data is kept
+            byte[] compressed = new byte[length - 1];
+            int compressedLength = Lz4.compress(data, length, compressed);
+            if (compressedLength >= 0) {
+                stored = compressed;
+                storedLength = compressedLength;
+            }
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(data, 0, length);
+        out.write(ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(length).putInt(storedLength).putInt((int) checksum.getValue())
+                .array());
+        out.write(stored, 0, storedLength);
+    }
+
+    /**
+     * Writes the block marking the end of a sequence of blocks.
+     *
+     * @param out The destination of the block.
+     * @throws IOException If there's an issue with writing to the destination.
+     */
+    public static void writeEndBlock(DataOutput out) throws IOException {
+        writeBlock(out, new byte[0], 0, false);
+    }
+
+    /**
+     * Reads a block written by writeBlock(), verifying its checksum.
+     *
+     * @param in The source of the block.
+     * @return The data of the block, empty for the end block.
+     * @throws java.io.EOFException If the block has been truncated.
+     * @throws CorruptedBlockException If the block is corrupted.
+     * @throws IOException If there's an issue with reading from the source.
+     */
+    public static byte[] readBlock(DataInput in) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        in.readFully(header);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        int length = headerBuffer.getInt();
+        int storedLength = headerBuffer.getInt();
+        int expectedChecksum = headerBuffer.getInt();
+        if (length < 0 || length > MAX_BLOCK_LENGTH || storedLength < 0 || storedLength > length) {
+            throw new CorruptedBlockException("Malformed block header");
+        }
+        byte[] stored = new byte[storedLength];
+        in.readFully(stored);
+        byte[] data = stored;
+        if (storedLength < length) {
+            data = new byte[length];
+            Lz4.decompress(stored, 0, storedLength, data, length);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(data);
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new CorruptedBlockException("Checksum mismatch");
+        }
+        return data;
+    }
+}
@@ -0,0 +1,85 @@
+package it.unipi.m598992.jobscheduler.codec;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream reading the bytes written by a BlockOutputStream, verifying the checksum of each block as it is read.
+ * The end of the stream is the end block: if the source ends before it, the stream has been truncated.
+ */
+public class BlockInputStream extends InputStream {
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final DataInputStream in;
+    private byte[] block = NO_BYTES;
+    private int position;
+    private boolean ended;
+
+    /**
+     * @param in The source of the blocks.
+     * @throws IOException If the source isn't a block stream, or there's an issue with reading from it.
+     */
+    public BlockInputStream(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != BlockOutputStream.MAGIC) {
+            throw new IOException("Not a block stream");
+        }
+    }
+
+    /**
+     * @throws EOFException            If the source ends before the end block.
+     * @throws CorruptedBlockException If a block is corrupted.
+     */
+    @Override
+    public int read() throws IOException {
+        if (!nextBlockIfConsumed()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    /**
+     * @throws EOFException            If the source ends before the end block.
+     * @throws CorruptedBlockException If a block is corrupted.
+     */
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextBlockIfConsumed()) {
+            return -1;
+        }
+        int copied = Math.min(length, block.length - position);
+        System.arraycopy(block, position, bytes, offset, copied);
+        position += copied;
+        return copied;
+    }
+
+    @Override
+    public int available() {
+        return block.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return Whether there are bytes to read, false at the end block.
+     */
+    private boolean nextBlockIfConsumed() throws IOException {
+        while (position == block.length) {
+            if (ended) {
+                return false;
+            }
+            block = BlockFormat.readBlock(in);
+            position = 0;
+            ended = block.length == 0;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package it.unipi.m598992.jobscheduler.codec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream writing the bytes in the block format (see BlockFormat): the bytes are buffered and written as a
+ * block whenever the buffer is full or the stream is flushed. The blocks are preceded by MAGIC and followed by the
+ * end block, written by close(). It is usually wrapped in a DataOutputStream to write the values with their codecs.
+ */
+public class BlockOutputStream extends OutputStream {
+    // Identifies the block streams
+    static final int MAGIC = 0x424C4B01;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final byte[] buffer;
+    private final boolean compress;
+    private int count;
+    private boolean closed;
+
+    /**
+     * Creates the stream writing compressed blocks of DEFAULT_BLOCK_SIZE bytes.
+     *
+     * @param out The destination of the blocks.
+     * @throws IOException If there's an issue with writing to the destination.
+     */
+    public BlockOutputStream(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE, true);
+    }
+
+    /**
+     * @param out       The destination of the blocks.
+     * @param blockSize The maximum length of the data of a block.
+     * @param compress  Whether the blocks are compressed.
+     * @throws IOException If there's an issue with writing to the destination.
+     */
+    public BlockOutputStream(OutputStream out, int blockSize, boolean compress) throws IOException {
+        if (blockSize <= 0 || blockSize > BlockFormat.MAX_BLOCK_LENGTH) {
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+        }
+        this.out = new DataOutputStream(out);
+        this.buffer = new byte[blockSize];
+        this.compress = compress;
+        this.out.writeInt(MAGIC);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            writeBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (count == buffer.length) {
+                writeBlock();
+            }
+            int copied = Math.min(length, buffer.length - count);
+            System.arraycopy(bytes, offset, buffer, count, copied);
+            count += copied;
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes as a block, even if it isn't full, and flushes the destination.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered bytes and the end block, and closes the destination.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (out) {
+            writeBlock();
+            BlockFormat.writeEndBlock(out);
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (count > 0) {
+            BlockFormat.writeBlock(out, buffer, count, compress);
+            count = 0;
+        }
+    }
+}
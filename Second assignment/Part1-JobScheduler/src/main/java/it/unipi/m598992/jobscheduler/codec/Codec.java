@@ -0,0 +1,181 @@
+package it.unipi.m598992.jobscheduler.codec;
+
+import it.unipi.m598992.auxfile.DistinctValues;
+import it.unipi.m598992.auxfile.Pair;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the keys and of the values handled by the scheduler, used whenever they have to leave the heap
+ * (spill files, checkpoints, caches, results of the workers). Lengths and counts are varints (see Varints), and the
+ * encoded pairs are usually stored in checksummed, optionally compressed blocks (see BlockOutputStream).
+ *
+ * @param <T> The type of the encoded objects.
+ */
+public interface Codec<T> {
+
+    /**
+     * Writes the binary representation of the value.
+     *
+     * @param out   The destination of the encoded value.
+     * @param value The value to encode.
+     * @throws IOException If there's an issue with writing to the destination.
+     */
+    void write(DataOutput out, T value) throws IOException;
+
+    /**
+     * Reads a value written by write().
+     *
+     * @param in The source of the encoded value.
+     * @return The decoded value.
+     * @throws IOException If there's an issue with reading from the source.
+     */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Codec for strings of any length, encoded in UTF-8 and prefixed by their length in bytes (a varint).
+     */
+    static Codec<String> utf8() {
+        return new Codec<>() {
+            @Override
+            public void write(DataOutput out, String value) throws IOException {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                Varints.writeVarInt(out, bytes.length);
+                out.write(bytes);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                byte[] bytes = new byte[Varints.readVarInt(in)];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Codec for 64-bit integers.
+     */
+    static Codec<Long> int64() {
+        return new Codec<>() {
+            @Override
+            public void write(DataOutput out, Long value) throws IOException {
+                out.writeLong(value);
+            }
+
+            @Override
+            public Long read(DataInput in) throws IOException {
+                return in.readLong();
+            }
+        };
+    }
+
+    /**
+     * Codec for 64-bit integers as zigzag varints: the values close to 0, such as most counts, take 1 or 2 bytes
+     * instead of 8.
+     */
+    static Codec<Long> varint64() {
+        return new Codec<>() {
+            @Override
+            public void write(DataOutput out, Long value) throws IOException {
+                Varints.writeVarLong(out, Varints.zigzag(value));
+            }
+
+            @Override
+            public Long read(DataInput in) throws IOException {
+                return Varints.unzigzag(Varints.readVarLong(in));
+            }
+        };
+    }
+
+    /**
+     * Codec for pairs, encoded as the key followed by the value.
+     *
+     * @param keyCodec   The codec of the keys.
+     * @param valueCodec The codec of the values.
+     */
+    static <K, V> Codec<Pair<K, V>> pairOf(Codec<K> keyCodec, Codec<V> valueCodec) {
+        return new Codec<>() {
+            @Override
+            public void write(DataOutput out, Pair<K, V> value) throws IOException {
+                keyCodec.write(out, value.getKey());
+                valueCodec.write(out, value.getValue());
+            }
+
+            @Override
+            public Pair<K, V> read(DataInput in) throws IOException {
+                return new Pair<>(keyCodec.read(in), valueCodec.read(in));
+            }
+        };
+    }
+
+    /**
+     * Codec for lists, encoded as the number of elements (a varint) followed by the elements.
+     *
+     * @param elementCodec The codec of the elements of the list.
+     */
+    static <T> Codec<List<T>> listOf(Codec<T> elementCodec) {
+        return new Codec<>() {
+            @Override
+            public void write(DataOutput out, List<T> value) throws IOException {
+                Varints.writeVarInt(out, value.size());
+                for (T element : value) {
+                    elementCodec.write(out, element);
+                }
+            }
+
+            @Override
+            public List<T> read(DataInput in) throws IOException {
+                int size = Varints.readVarInt(in);
+                List<T> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(elementCodec.read(in));
+                }
+                return list;
+            }
+        };
+    }
+
+    /**
+     * Codec for the sets of distinct values of AggregationStrategy.distinct(), encoded as the number of distinct
+     * values (a varint) followed by each value and its number of occurrences (a varint).
+     *
+     * @param valueCodec The codec of the values.
+     */
+    static <V> Codec<DistinctValues<V>> distinctOf(Codec<V> valueCodec) {
+        return new Codec<>() {
+            @Override
+            public void write(DataOutput out, DistinctValues<V> value) throws IOException {
+                Varints.writeVarInt(out, value.size());
+                try {
+                    value.forEach((element, occurrences) -> {
+                        try {
+                            valueCodec.write(out, element);
+                            Varints.writeVarInt(out, occurrences);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+
+            @Override
+            public DistinctValues<V> read(DataInput in) throws IOException {
+                int size = Varints.readVarInt(in);
+                DistinctValues<V> distinctValues = new DistinctValues<>();
+                for (int i = 0; i < size; i++) {
+                    distinctValues.add(valueCodec.read(in), Varints.readVarInt(in));
+                }
+                return distinctValues;
+            }
+        };
+    }
+}
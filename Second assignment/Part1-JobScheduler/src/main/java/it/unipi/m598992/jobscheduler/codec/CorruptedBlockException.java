@@ -0,0 +1,14 @@
+package it.unipi.m598992.jobscheduler.codec;
+
+import java.io.IOException;
+
+/**
+ * Signals a block whose content doesn't match its checksum, or can't be decompressed (see BlockFormat).
+ */
+public class CorruptedBlockException extends IOException {
+
+    public CorruptedBlockException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,186 @@
+package it.unipi.m598992.jobscheduler.codec;
+
+/**
+ * Compressor of the blocks, producing the LZ4 block format: a sequence of literals followed by a match (a copy of
+ * at least 4 bytes from up to 64 KiB before), each sequence starting with a token holding the two lengths.
+ * Matches are found with a single-probe hash table, favouring speed over ratio, so compressing costs little more
+ * than copying the data.
+ */
+final class Lz4 {
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 65535;
+    // The last bytes of a block are always literals, and no match starts in the last MF_LIMIT bytes
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int HASH_BITS = 12;
+    // A miss every 2^SKIP_TRIGGER bytes increases the step, so incompressible data is skipped quickly
+    private static final int SKIP_TRIGGER = 6;
+
+    private Lz4() {
+    }
+
+    /**
+     * @param src    The data to compress.
+     * @param length The number of bytes of src to compress.
+     * @param dst    The destination of the compressed data.
+     * @return The length of the compressed data, or -1 if it doesn't fit in dst.
+     */
+    static int compress(byte[] src, int length, byte[] dst) {
+        int anchor = 0;
+        int out = 0;
+        if (length > MF_LIMIT) {
+            int[] table = new int[1 << HASH_BITS];
+            int matchLimit = length - LAST_LITERALS;
+            int in = 1;
+            while (in < length - MF_LIMIT) {
+                int sequence = readInt(src, in);
+                int hash = hash(sequence);
+                int reference = table[hash];
+                table[hash] = in;
+                if (reference >= in || in - reference > MAX_OFFSET || readInt(src, reference) != sequence) {
+                    in += 1 + ((in - anchor) >>> SKIP_TRIGGER);
+                    continue;
+                }
+                int matchLength = MIN_MATCH;
+                while (in + matchLength < matchLimit && src[in + matchLength] == src[reference + matchLength]) {
+                    matchLength++;
+                }
+                out = writeSequence(src, anchor, in - anchor, in - reference, matchLength, dst, out);
+                if (out < 0) {
+                    return -1;
+                }
+                in += matchLength;
+                anchor = in;
+            }
+        }
+        return writeLastLiterals(src, anchor, length - anchor, dst, out);
+    }
+
+    /**
+     * @param src       The compressed data.
+     * @param offset    The offset of the compressed data in src.
+     * @param length    The length of the compressed data.
+     * @param dst       The destination of the decompressed data.
+     * @param rawLength The length of the decompressed data.
+     * @throws CorruptedBlockException If the compressed data is malformed or doesn't decompress to rawLength bytes.
+     */
+    static void decompress(byte[] src, int offset, int length, byte[] dst, int rawLength)
+            throws CorruptedBlockException {
+        int in = offset;
+        int end = offset + length;
+        int out = 0;
+        while (in < end) {
+            int token = src[in++] & 0xFF;
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int b;
+                do {
+                    if (in >= end) {
+                        throw malformed();
+                    }
+                    b = src[in++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > end - in || literalLength > rawLength - out) {
+                throw malformed();
+            }
+            System.arraycopy(src, in, dst, out, literalLength);
+            in += literalLength;
+            out += literalLength;
+            if (in == end) {
+                // The last sequence has no match
+                break;
+            }
+            if (end - in < 2) {
+                throw malformed();
+            }
+            int matchOffset = (src[in] & 0xFF) | (src[in + 1] & 0xFF) << 8;
+            in += 2;
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (in >= end) {
+                        throw malformed();
+                    }
+                    b = src[in++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchOffset == 0 || matchOffset > out || matchLength > rawLength - out) {
+                throw malformed();
+            }
+            int reference = out - matchOffset;
+            if (matchOffset >= matchLength) {
+                System.arraycopy(dst, reference, dst, out, matchLength);
+            } else {
+                // The match overlaps the bytes being written (e.g. a run of the same byte)
+                for (int i = 0; i < matchLength; i++) {
+                    dst[out + i] = dst[reference + i];
+                }
+            }
+            out += matchLength;
+        }
+        if (out != rawLength) {
+            throw malformed();
+        }
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, int matchOffset,
+                                     int matchLength, byte[] dst, int out) {
+        // Token, lengths, literals and offset in the worst case
+        if (out + 1 + literalLength / 255 + 1 + literalLength + 2 + matchLength / 255 + 1 > dst.length) {
+            return -1;
+        }
+        int token = out++;
+        out = writeLength(literalLength, dst, out);
+        System.arraycopy(src, literalStart, dst, out, literalLength);
+        out += literalLength;
+        dst[out++] = (byte) matchOffset;
+        dst[out++] = (byte) (matchOffset >>> 8);
+        int extraMatchLength = matchLength - MIN_MATCH;
+        out = writeLength(extraMatchLength, dst, out);
+        dst[token] = (byte) (Math.min(literalLength, 15) << 4 | Math.min(extraMatchLength, 15));
+        return out;
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalStart, int literalLength, byte[] dst, int out) {
+        if (out + 1 + literalLength / 255 + 1 + literalLength > dst.length) {
+            return -1;
+        }
+        dst[out++] = (byte) (Math.min(literalLength, 15) << 4);
+        out = writeLength(literalLength, dst, out);
+        System.arraycopy(src, literalStart, dst, out, literalLength);
+        return out + literalLength;
+    }
+
+    /**
+     * Writes the part of a length not fitting in the 4 bits of the token.
+     */
+    private static int writeLength(int length, byte[] dst, int out) {
+        if (length >= 15) {
+            int remaining = length - 15;
+            while (remaining >= 255) {
+                dst[out++] = (byte) 255;
+                remaining -= 255;
+            }
+            dst[out++] = (byte) remaining;
+        }
+        return out;
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF) | (src[offset + 1] & 0xFF) << 8 | (src[offset + 2] & 0xFF) << 16
+                | (src[offset + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (Integer.SIZE - HASH_BITS);
+    }
+
+    private static CorruptedBlockException malformed() {
+        return new CorruptedBlockException("Malformed compressed block");
+    }
+}
@@ -0,0 +1,117 @@
+package it.unipi.m598992.jobscheduler.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length encoding of the integers (LEB128): 7 bits per byte, least significant group first, with the high
+ * bit of each byte set when more bytes follow. Small non-negative values, such as lengths and counts, take a single
+ * byte; the signed values are zigzag-encoded first, so that small negative values are short too.
+ */
+public final class Varints {
+
+    private Varints() {
+    }
+
+    /**
+     * Writes a non-negative int in 1 to 5 bytes (negative values take 5 bytes).
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * @throws IOException If the value is longer than 5 bytes.
+     */
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Writes a non-negative long in 1 to 10 bytes (negative values take 10 bytes).
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * @throws IOException If the value is longer than 10 bytes.
+     */
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads a varint at the position of the buffer (e.g. a memory-mapped file), advancing it.
+     *
+     * @throws BufferUnderflowException If the buffer ends before the value.
+     * @throws IllegalArgumentException If the value is longer than 5 bytes.
+     */
+    public static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Reads a varint at the position of the buffer (e.g. a memory-mapped file), advancing it.
+     *
+     * @throws BufferUnderflowException If the buffer ends before the value.
+     * @throws IllegalArgumentException If the value is longer than 10 bytes.
+     */
+    public static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Maps the signed values to the unsigned ones alternating the signs (0, -1, 1, -2, ...).
+     */
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
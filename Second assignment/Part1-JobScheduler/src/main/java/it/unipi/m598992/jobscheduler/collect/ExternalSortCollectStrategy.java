@@ -0,0 +1,419 @@
+package it.unipi.m598992.jobscheduler.collect;
+
+import it.unipi.m598992.auxfile.DistinctValues;
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.codec.BlockInputStream;
+import it.unipi.m598992.jobscheduler.codec.BlockOutputStream;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.exception.CollectException;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.CollectBuffer;
+import it.unipi.m598992.jobscheduler.strategy.CollectStrategy;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Collect strategy for runs whose aggregation doesn't fit in the heap (external sort/merge).
+ * The pairs are aggregated in memory until the weight of the accumulators held reaches the memory budget; then the
+ * accumulators are sorted by key and spilled to a temporary file (run). The weight of an accumulator estimates the
+ * entries it holds: by default 1 for a single value (e.g. counting(), which spills only when its key set outgrows
+ * the budget) and the number of elements for a collection (e.g. toList(), whose lists grow without new keys).
+ * At the end of the collect phase the runs are merged with a k-way merge that combines the accumulators of the same
+ * key, producing the pairs lazily and sorted by key; at most maxFanIn runs are open at once, so when there are more
+ * the runs are first merged, maxFanIn at a time, into fewer and larger runs.
+ * The runs are written in the block format (see BlockOutputStream), compressed unless withCompression(false).
+ */
+public class ExternalSortCollectStrategy<K, V, A> implements CollectStrategy<K, V, A> {
+    private static final int DEFAULT_MAX_FAN_IN = 64;
+
+    private final Comparator<? super K> keyComparator;
+    private final Codec<K> keyCodec;
+    private final Codec<A> accumulatorCodec;
+    private final long memoryBudget;
+    private final Path spillDirectory;
+    private boolean compression = true;
+    private ToLongFunction<? super A> accumulatorWeight = ExternalSortCollectStrategy::defaultWeight;
+    private int maxFanIn = DEFAULT_MAX_FAN_IN;
+
+    /**
+     * @param keyComparator    The total order of the keys, used to sort the runs. Keys are equal when it returns 0.
+     * @param keyCodec         The codec used to write the keys in the runs.
+     * @param accumulatorCodec The codec used to write the accumulators in the runs.
+     * @param memoryBudget     The maximum weight of the accumulators held in memory (see withAccumulatorWeight())
+     *                         before a run is spilled to disk. Each CollectBuffer (e.g. each partition) has its own
+     *                         budget.
+     * @param spillDirectory   The directory in which the runs are created.
+     */
+    public ExternalSortCollectStrategy(Comparator<? super K> keyComparator, Codec<K> keyCodec,
+                                       Codec<A> accumulatorCodec, long memoryBudget, Path spillDirectory) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive: " + memoryBudget);
+        }
+        this.keyComparator = keyComparator;
+        this.keyCodec = keyCodec;
+        this.accumulatorCodec = accumulatorCodec;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Creates the strategy spilling the runs in the default temporary-file directory.
+     */
+    public ExternalSortCollectStrategy(Comparator<? super K> keyComparator, Codec<K> keyCodec,
+                                       Codec<A> accumulatorCodec, long memoryBudget) {
+        this(keyComparator, keyCodec, accumulatorCodec, memoryBudget,
+                Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param compression Whether the runs are compressed (true by default): it trades some CPU for less disk I/O.
+     * @return This strategy.
+     */
+    public ExternalSortCollectStrategy<K, V, A> withCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * @param accumulatorWeight The weight of an accumulator counted against the memory budget, e.g. its number of
+     *                          entries or an estimate of its size in bytes; it must be positive and it is computed
+     *                          again each time the accumulator changes, so it should be cheap. By default it is the
+     *                          size of the collections, maps and DistinctValues, and 1 for the other accumulators.
+     * @return This strategy.
+     */
+    public ExternalSortCollectStrategy<K, V, A> withAccumulatorWeight(ToLongFunction<? super A> accumulatorWeight) {
+        this.accumulatorWeight = accumulatorWeight;
+        return this;
+    }
+
+    /**
+     * @param maxFanIn The maximum number of runs read at once by a merge (64 by default), which bounds the open
+     *                 files and their buffers.
+     * @return This strategy.
+     * @throws IllegalArgumentException If the fan-in is less than 2.
+     */
+    public ExternalSortCollectStrategy<K, V, A> withMaxFanIn(int maxFanIn) {
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("The fan-in of the merge must be at least 2: " + maxFanIn);
+        }
+        this.maxFanIn = maxFanIn;
+        return this;
+    }
+
+    @Override
+    public CollectBuffer<K, V, A> open(AggregationStrategy<K, V, A> aggregationStrategy) {
+        return new ExternalSortCollectBuffer(aggregationStrategy);
+    }
+
+    private static long defaultWeight(Object accumulator) {
+        // An empty accumulator still takes the place of its key
+        if (accumulator instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (accumulator instanceof Map<?, ?> map) {
+            return Math.max(1, map.size());
+        }
+        if (accumulator instanceof DistinctValues<?> distinctValues) {
+            return Math.max(1, distinctValues.size());
+        }
+        return 1;
+    }
+
+    private class ExternalSortCollectBuffer implements CollectBuffer<K, V, A> {
+        private final AggregationStrategy<K, V, A> aggregationStrategy;
+        private Map<K, A> aggregatedByKey = new HashMap<>();
+        // Weight of the accumulators in memory, updated as they change
+        private long weightInMemory = 0;
+        // Spilled runs, in spill order
+        private final List<Path> runs = new ArrayList<>();
+        // Readers of the runs opened by drain()
+        private final List<DataInputStream> openReaders = new ArrayList<>();
+
+        private ExternalSortCollectBuffer(AggregationStrategy<K, V, A> aggregationStrategy) {
+            this.aggregationStrategy = aggregationStrategy;
+        }
+
+        @Override
+        public void accumulate(K key, V value) {
+            aggregatedByKey.compute(key, (k, accumulator) -> {
+                // The accumulator may be modified in place, so it is weighed before
+                long previousWeight = weightOf(accumulator);
+                A result = aggregationStrategy.accumulate(
+                        accumulator == null ? aggregationStrategy.createAccumulator() : accumulator, value);
+                weightInMemory += weightOf(result) - previousWeight;
+                return result;
+            });
+            spillIfOverBudget();
+        }
+
+        @Override
+        public void combine(K key, A partialAccumulator) {
+            aggregatedByKey.compute(key, (k, accumulator) -> {
+                long previousWeight = weightOf(accumulator);
+                A result = accumulator == null ? partialAccumulator
+                        : aggregationStrategy.combine(accumulator, partialAccumulator);
+                weightInMemory += weightOf(result) - previousWeight;
+                return result;
+            });
+            spillIfOverBudget();
+        }
+
+        @Override
+        public Stream<Pair<K, A>> drain() {
+            if (runs.isEmpty()) {
+                // Everything fits in memory: no merge is needed
+                return aggregatedByKey.entrySet().stream().map(entry ->
+                        new Pair<>(entry.getKey(), entry.getValue()));
+            }
+            // The entries still in memory are merged as the last run, so the runs on disk leave it a place
+            while (runs.size() >= maxFanIn) {
+                mergeRuns();
+            }
+            List<Iterator<Pair<K, A>>> sortedRuns = new ArrayList<>();
+            for (Path run : runs) {
+                sortedRuns.add(openRun(run, openReaders));
+            }
+            sortedRuns.add(sortedEntries().iterator());
+            aggregatedByKey = new HashMap<>();
+            weightInMemory = 0;
+            Spliterator<Pair<K, A>> merge = new KWayMergeSpliterator(sortedRuns);
+            return StreamSupport.stream(merge, false).onClose(this::close);
+        }
+
+        @Override
+        public void close() {
+            closeAll(openReaders);
+            for (Path run : runs) {
+                try {
+                    Files.deleteIfExists(run);
+                } catch (IOException e) {
+                    throw new CollectException(e);
+                }
+            }
+            runs.clear();
+        }
+
+        // The weight of an accumulator, 0 when the key is new
+        private long weightOf(A accumulator) {
+            return accumulator == null ? 0 : accumulatorWeight.applyAsLong(accumulator);
+        }
+
+        private void spillIfOverBudget() {
+            if (weightInMemory >= memoryBudget) {
+                spill();
+            }
+        }
+
+        private void spill() {
+            Path run = createRun();
+            runs.add(run);
+            try (DataOutputStream out = newRunWriter(run)) {
+                for (Pair<K, A> entry : sortedEntries()) {
+                    writeEntry(out, entry);
+                }
+                out.writeBoolean(false);
+            } catch (IOException e) {
+                throw new CollectException(e);
+            }
+            // Free the memory: the accumulators now live in the run
+            aggregatedByKey = new HashMap<>();
+            weightInMemory = 0;
+        }
+
+        /**
+         * A merge pass: replaces each group of maxFanIn consecutive runs with the run of their merge, so the
+         * accumulators of each key are still combined in spill order.
+         */
+        private void mergeRuns() {
+            for (int first = 0; first < runs.size() - 1; first++) {
+                int groupSize = Math.min(maxFanIn, runs.size() - first);
+                Path merged = createRun();
+                runs.add(first, merged);
+                List<Path> group = runs.subList(first + 1, first + 1 + groupSize);
+                List<DataInputStream> readers = new ArrayList<>();
+                try (DataOutputStream out = newRunWriter(merged)) {
+                    List<Iterator<Pair<K, A>>> sortedRuns = new ArrayList<>();
+                    for (Path run : group) {
+                        sortedRuns.add(openRun(run, readers));
+                    }
+                    new KWayMergeSpliterator(sortedRuns).forEachRemaining(entry -> {
+                        try {
+                            writeEntry(out, entry);
+                        } catch (IOException e) {
+                            throw new CollectException(e);
+                        }
+                    });
+                    out.writeBoolean(false);
+                } catch (IOException e) {
+                    throw new CollectException(e);
+                } finally {
+                    closeAll(readers);
+                }
+                for (Path run : group) {
+                    try {
+                        Files.deleteIfExists(run);
+                    } catch (IOException e) {
+                        throw new CollectException(e);
+                    }
+                }
+                group.clear();
+            }
+        }
+
+        private Path createRun() {
+            try {
+                return Files.createTempFile(spillDirectory, "collect-run-", ".bin");
+            } catch (IOException e) {
+                throw new CollectException(e);
+            }
+        }
+
+        private DataOutputStream newRunWriter(Path run) throws IOException {
+            return new DataOutputStream(new BlockOutputStream(Files.newOutputStream(run),
+                    BlockOutputStream.DEFAULT_BLOCK_SIZE, compression));
+        }
+
+        // Each entry of a run is preceded by true, and the last one is followed by false, so a merged run can be
+        // written without knowing its number of entries
+        private void writeEntry(DataOutputStream out, Pair<K, A> entry) throws IOException {
+            out.writeBoolean(true);
+            keyCodec.write(out, entry.getKey());
+            accumulatorCodec.write(out, entry.getValue());
+        }
+
+        private List<Pair<K, A>> sortedEntries() {
+            return aggregatedByKey.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey(keyComparator))
+                    .map(entry -> new Pair<>(entry.getKey(), entry.getValue()))
+                    .toList();
+        }
+
+        private Iterator<Pair<K, A>> openRun(Path run, List<DataInputStream> readers) {
+            try {
+                DataInputStream in = new DataInputStream(new BlockInputStream(Files.newInputStream(run)));
+                readers.add(in);
+                return new Iterator<>() {
+                    // Whether an entry follows, read ahead; null until it has been read
+                    private Boolean hasNext;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (hasNext == null) {
+                            try {
+                                hasNext = in.readBoolean();
+                            } catch (IOException e) {
+                                throw new CollectException(e);
+                            }
+                        }
+                        return hasNext;
+                    }
+
+                    @Override
+                    public Pair<K, A> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        hasNext = null;
+                        try {
+                            return new Pair<>(keyCodec.read(in), accumulatorCodec.read(in));
+                        } catch (IOException e) {
+                            throw new CollectException(e);
+                        }
+                    }
+                };
+            } catch (IOException e) {
+                throw new CollectException(e);
+            }
+        }
+
+        private void closeAll(List<DataInputStream> readers) {
+            for (DataInputStream reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                    // The run is deleted anyway
+                }
+            }
+            readers.clear();
+        }
+
+        /**
+         * Lazily merges the sorted runs: at each step the smallest key is taken from all the runs that contain it,
+         * combining its accumulators in run order (i.e. in emission order).
+         */
+        private class KWayMergeSpliterator extends Spliterators.AbstractSpliterator<Pair<K, A>> {
+            // Heads of the runs, ordered by key and then by run index
+            private final PriorityQueue<RunHead> heads;
+
+            private KWayMergeSpliterator(List<Iterator<Pair<K, A>>> sortedRuns) {
+                super(Long.MAX_VALUE, Spliterator.NONNULL | Spliterator.DISTINCT);
+                Comparator<RunHead> headOrder = Comparator.comparing((RunHead head) -> head.entry.getKey(),
+                        keyComparator);
+                heads = new PriorityQueue<>(Math.max(1, sortedRuns.size()),
+                        headOrder.thenComparingInt(head -> head.runIndex));
+                for (int i = 0; i < sortedRuns.size(); i++) {
+                    Iterator<Pair<K, A>> run = sortedRuns.get(i);
+                    if (run.hasNext()) {
+                        heads.add(new RunHead(i, run.next(), run));
+                    }
+                }
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Pair<K, A>> action) {
+                RunHead smallest = heads.poll();
+                if (smallest == null) {
+                    return false;
+                }
+                K key = smallest.entry.getKey();
+                A accumulator = smallest.entry.getValue();
+                advance(smallest);
+                // Combine the accumulators of the same key coming from the other runs
+                while (!heads.isEmpty() && keyComparator.compare(heads.peek().entry.getKey(), key) == 0) {
+                    RunHead sameKey = heads.poll();
+                    accumulator = aggregationStrategy.combine(accumulator, sameKey.entry.getValue());
+                    advance(sameKey);
+                }
+                action.accept(new Pair<>(key, accumulator));
+                return true;
+            }
+
+            private void advance(RunHead head) {
+                if (head.run.hasNext()) {
+                    heads.add(new RunHead(head.runIndex, head.run.next(), head.run));
+                }
+            }
+        }
+
+        private class RunHead {
+            private final int runIndex;
+            private final Pair<K, A> entry;
+            private final Iterator<Pair<K, A>> run;
+
+            private RunHead(int runIndex, Pair<K, A> entry, Iterator<Pair<K, A>> run) {
+                this.runIndex = runIndex;
+                this.entry = entry;
+                this.run = run;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package it.unipi.m598992.jobscheduler.collect;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.CollectBuffer;
+import it.unipi.m598992.jobscheduler.strategy.CollectStrategy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Collect strategy that keeps the accumulator of every key in a HashMap. It's the default one of the scheduler.
+ */
+public class InMemoryCollectStrategy<K, V, A> implements CollectStrategy<K, V, A> {
+
+    @Override
+    public CollectBuffer<K, V, A> open(AggregationStrategy<K, V, A> aggregationStrategy) {
+        return new InMemoryCollectBuffer<>(aggregationStrategy);
+    }
+
+    private static class InMemoryCollectBuffer<K, V, A> implements CollectBuffer<K, V, A> {
+        private final AggregationStrategy<K, V, A> aggregationStrategy;
+        private final Map<K, A> aggregatedByKey = new HashMap<>();
+
+        private InMemoryCollectBuffer(AggregationStrategy<K, V, A> aggregationStrategy) {
+            this.aggregationStrategy = aggregationStrategy;
+        }
+
+        @Override
+        public void accumulate(K key, V value) {
+            aggregatedByKey.compute(key, (k, accumulator) -> aggregationStrategy.accumulate(
+                    accumulator == null ? aggregationStrategy.createAccumulator() : accumulator, value));
+        }
+
+        @Override
+        public void combine(K key, A partialAccumulator) {
+            aggregatedByKey.merge(key, partialAccumulator, aggregationStrategy::combine);
+        }
+
+        @Override
+        public Stream<Pair<K, A>> drain() {
+            // Transform the aggregated entries back into a stream of Pair objects
+            return aggregatedByKey.entrySet().stream().map(entry ->
+                    new Pair<>(entry.getKey(), entry.getValue()));
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release: the map is garbage collected together with the buffer
+        }
+    }
+}
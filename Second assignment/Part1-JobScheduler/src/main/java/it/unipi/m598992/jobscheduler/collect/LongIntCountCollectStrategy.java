@@ -0,0 +1,64 @@
+package it.unipi.m598992.jobscheduler.collect;
+
+import it.unipi.m598992.auxfile.LongIntHashMap;
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.CollectBuffer;
+import it.unipi.m598992.jobscheduler.strategy.CollectStrategy;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Collect strategy specialised for long keys and int counts: the counts are summed in a primitive open-addressing
+ * map (LongIntHashMap), which takes a fraction of the memory of a HashMap with boxed keys and values.
+ * The buffer adds the values itself instead of invoking the aggregation strategy, so it only accepts the strategies
+ * summing the values, like AggregationStrategy.summingInt().
+ */
+public class LongIntCountCollectStrategy implements CollectStrategy<Long, Integer, Integer> {
+
+    /**
+     * @throws IllegalArgumentException If the aggregation strategy doesn't sum the values.
+     */
+    @Override
+    public CollectBuffer<Long, Integer, Integer> open(AggregationStrategy<Long, Integer, Integer> aggregationStrategy) {
+        if (!isSumming(aggregationStrategy)) {
+            throw new IllegalArgumentException("LongIntCountCollectStrategy only sums the values: it can't implement "
+                    + aggregationStrategy);
+        }
+        return new LongIntCountCollectBuffer();
+    }
+
+    private static boolean isSumming(AggregationStrategy<Long, Integer, Integer> aggregationStrategy) {
+        // The strategies can't be compared, so their results are: a sum starts from 0, adds each value and each
+        // partial sum (e.g. counting() would add 1 instead of the value)
+        return Objects.equals(aggregationStrategy.createAccumulator(), 0)
+                && Objects.equals(aggregationStrategy.accumulate(0, 2), 2)
+                && Objects.equals(aggregationStrategy.accumulate(3, 4), 7)
+                && Objects.equals(aggregationStrategy.combine(5, 6), 11);
+    }
+
+    private static class LongIntCountCollectBuffer implements CollectBuffer<Long, Integer, Integer> {
+        private final LongIntHashMap countsByKey = new LongIntHashMap();
+
+        @Override
+        public void accumulate(Long key, Integer value) {
+            countsByKey.addTo(key, value);
+        }
+
+        @Override
+        public void combine(Long key, Integer partialAccumulator) {
+            countsByKey.addTo(key, partialAccumulator);
+        }
+
+        @Override
+        public Stream<Pair<Long, Integer>> drain() {
+            return countsByKey.entries();
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release: the map is garbage collected together with the buffer
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package it.unipi.m598992.jobscheduler.exception;
+
+public class CheckpointException extends RuntimeException {
+
+    public CheckpointException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,9 @@
+package it.unipi.m598992.jobscheduler.exception;
+
+public class CollectException extends RuntimeException {
+
+    public CollectException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,9 @@
+package it.unipi.m598992.jobscheduler.exception;
+
+public class JobCacheException extends RuntimeException {
+
+    public JobCacheException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,9 @@
+package it.unipi.m598992.jobscheduler.exception;
+
+public class TooManyFailuresException extends RuntimeException {
+
+    public TooManyFailuresException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,9 @@
+package it.unipi.m598992.jobscheduler.exception;
+
+public class WorkerException extends RuntimeException {
+
+    public WorkerException(Throwable cause) {
+        super(cause);
+    }
+
+}
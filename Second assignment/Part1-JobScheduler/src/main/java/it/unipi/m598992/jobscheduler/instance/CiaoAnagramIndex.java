@@ -0,0 +1,153 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, read-optimised index of the result of a run: for each 'CIAO' key, its distinct words and its number of
+ * anagrams. The keys are kept in a sorted array, for the prefix queries, and the point lookups go through an
+ * open-addressing table of the positions of the keys, so they don't need a binary search.
+ * Since the index never changes after its creation, any number of threads can query it without locks.
+ */
+public final class CiaoAnagramIndex {
+    private static final CiaoAnagramIndex EMPTY = new CiaoAnagramIndex(new String[0], new long[0], new String[0][]);
+    private static final String[] NO_WORDS = new String[0];
+
+    // Sorted keys, and the counts and the sorted distinct words of each of them
+    private final String[] keys;
+    private final long[] counts;
+    private final String[][] words;
+    // Position of each key plus 1 (0 for the empty slots), in the slot given by its hash or in the following ones
+    private final int[] positions;
+    private final int mask;
+
+    private CiaoAnagramIndex(String[] keys, long[] counts, String[][] words) {
+        this.keys = keys;
+        this.counts = counts;
+        this.words = words;
+        // At most half of the slots are used, so the probe sequences are short
+        int capacity = Integer.highestOneBit(Math.max(1, keys.length) * 2 - 1) << 1;
+        this.positions = new int[capacity];
+        this.mask = capacity - 1;
+        for (int position = 0; position < keys.length; position++) {
+            int slot = slotOf(keys[position]);
+            while (positions[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            positions[slot] = position + 1;
+        }
+    }
+
+    /**
+     * @return The index with no keys.
+     */
+    public static CiaoAnagramIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates the index of the pairs of a run. The keys and the words are referenced, not copied.
+     *
+     * @param pairs   The 'CIAO' keys and their accumulators; each key must appear once.
+     * @param count   The number of anagrams of an accumulator (e.g. List::size).
+     * @param members The words of an accumulator (e.g. Function.identity() for the lists of words).
+     * @throws IllegalArgumentException If a key appears more than once.
+     */
+    @SuppressWarnings("unchecked")
+    public static <A> CiaoAnagramIndex of(Stream<Pair<String, A>> pairs, ToLongFunction<? super A> count,
+                                          Function<? super A, ? extends Collection<String>> members) {
+        Pair<String, A>[] sortedPairs = pairs.toArray(Pair[]::new);
+        Arrays.parallelSort(sortedPairs, (first, second) -> first.getKey().compareTo(second.getKey()));
+        String[] keys = new String[sortedPairs.length];
+        long[] counts = new long[sortedPairs.length];
+        String[][] words = new String[sortedPairs.length][];
+        for (int position = 0; position < sortedPairs.length; position++) {
+            Pair<String, A> pair = sortedPairs[position];
+            if (position > 0 && pair.getKey().equals(keys[position - 1])) {
+                throw new IllegalArgumentException("Duplicate key: " + pair.getKey());
+            }
+            keys[position] = pair.getKey();
+            counts[position] = count.applyAsLong(pair.getValue());
+            Collection<String> keyWords = members.apply(pair.getValue());
+            words[position] = keyWords.isEmpty() ? NO_WORDS
+                    : keyWords.stream().distinct().sorted().toArray(String[]::new);
+        }
+        return new CiaoAnagramIndex(keys, counts, words);
+    }
+
+    /**
+     * @return The number of keys of the index.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param key A 'CIAO' key.
+     * @return The number of anagrams of the key, or an empty OptionalLong if the key isn't in the index.
+     */
+    public OptionalLong count(String key) {
+        int position = positionOf(key);
+        return position < 0 ? OptionalLong.empty() : OptionalLong.of(counts[position]);
+    }
+
+    /**
+     * @param key A 'CIAO' key.
+     * @return The distinct words of the key, sorted, or an empty list if the key isn't in the index.
+     */
+    public List<String> words(String key) {
+        int position = positionOf(key);
+        return position < 0 ? List.of() : Collections.unmodifiableList(Arrays.asList(words[position]));
+    }
+
+    /**
+     * @param word Any word.
+     * @return The distinct words with the same 'CIAO' key as the word (including the word itself, if it was read),
+     * sorted.
+     */
+    public List<String> anagramsOf(String word) {
+        return words(CiaoWordReaderJob.keyOf(word));
+    }
+
+    /**
+     * @param prefix The beginning of the keys searched.
+     * @return The keys starting with the prefix, sorted.
+     */
+    public List<String> keysWithPrefix(String prefix) {
+        // The keys with the prefix follow it in the sorted array
+        int position = Arrays.binarySearch(keys, prefix);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        List<String> result = new ArrayList<>();
+        while (position < keys.length && keys[position].startsWith(prefix)) {
+            result.add(keys[position++]);
+        }
+        return result;
+    }
+
+    private int positionOf(String key) {
+        for (int slot = slotOf(key); positions[slot] != 0; slot = (slot + 1) & mask) {
+            int position = positions[slot] - 1;
+            if (keys[position].equals(key)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private int slotOf(String key) {
+        // The hash is spread so that the keys with similar hashes don't fill adjacent slots
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+}
@@ -0,0 +1,72 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the OutputStrategy interface keeping the result of each run as a CiaoAnagramIndex, which can then
+ * serve the lookups of the process (e.g. while a CiaoDirectoryWatcher runs again on the changed documents). Each run
+ * publishes a new index, replacing the previous one at once: the threads querying the index obtained by getIndex()
+ * are never blocked, and see either the old or the new result. The pairs can also be passed to another output
+ * strategy (e.g. a CiaoWordCsvOutput), so the result is both written and kept.
+ *
+ * @param <A> The type of the accumulators (e.g. the list of the words of each key).
+ */
+public class CiaoAnagramIndexOutput<A> implements OutputStrategy<String, A> {
+    private final ToLongFunction<? super A> count;
+    private final Function<? super A, ? extends Collection<String>> members;
+    // When null, the pairs are only indexed
+    private OutputStrategy<String, A> downstream;
+    private volatile CiaoAnagramIndex index = CiaoAnagramIndex.empty();
+
+    /**
+     * @param count   The number of anagrams of an accumulator (e.g. List::size).
+     * @param members The words of an accumulator (e.g. Function.identity() for the lists of words).
+     */
+    public CiaoAnagramIndexOutput(ToLongFunction<? super A> count,
+                                  Function<? super A, ? extends Collection<String>> members) {
+        this.count = count;
+        this.members = members;
+    }
+
+    /**
+     * @param downstream The output strategy receiving the pairs once they have been indexed.
+     * @return This output.
+     */
+    public CiaoAnagramIndexOutput<A> withDownstream(OutputStrategy<String, A> downstream) {
+        this.downstream = downstream;
+        return this;
+    }
+
+    /**
+     * @return The index of the last run, empty before the first one.
+     */
+    public CiaoAnagramIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Indexes the pairs of the run, publishes the index and then passes the pairs to the downstream output strategy,
+     * if any.
+     *
+     * @param collectOutput The stream of pairs containing 'CIAO' keys and their accumulators.
+     */
+    @Override
+    public void output(Stream<Pair<String, A>> collectOutput) {
+        if (downstream == null) {
+            index = CiaoAnagramIndex.of(collectOutput, count, members);
+            return;
+        }
+        // The pairs are referenced twice, by the index and by the stream of the downstream strategy
+        List<Pair<String, A>> pairs = new ArrayList<>();
+        index = CiaoAnagramIndex.of(collectOutput.peek(pairs::add), count, members);
+        downstream.output(pairs.stream());
+    }
+}
@@ -0,0 +1,167 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.codec.Varints;
+import it.unipi.m598992.jobscheduler.exception.OutputStrategyException;
+import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the OutputStrategy interface for writing the 'CIAO' keys and their number of anagrams in a
+ * compact columnar binary file, which CiaoColumnarReader queries without parsing it: a dictionary of the keys sorted
+ * by their UTF-8 bytes, which is also the index of the keys, a column of the counts as varints and, optionally, a
+ * column of the distinct words of each key (see CiaoColumnarReader for the layout).
+ *
+ * @param <K> The type of the keys, converted to the 'CIAO' form only when they are written.
+ * @param <A> The type of the accumulators (e.g. the number of words, or the list of the words, of each key).
+ */
+public class CiaoColumnarOutput<K, A> implements OutputStrategy<K, A> {
+    private static final Codec<String> WORD_CODEC = Codec.utf8();
+
+    private final Path outputFile;
+    private final Function<? super K, String> keyToCIAO;
+    private final ToLongFunction<? super A> count;
+    // When null, the words of the keys are not written
+    private Function<? super A, ? extends Collection<String>> members;
+
+    /**
+     * @param outputFile The columnar file written.
+     * @param keyToCIAO  The function converting a key to its 'CIAO' form (e.g. CiaoSignatures::toCIAO).
+     * @param count      The number of anagrams of an accumulator (e.g. Long::longValue, or List::size).
+     */
+    public CiaoColumnarOutput(Path outputFile, Function<? super K, String> keyToCIAO,
+                              ToLongFunction<? super A> count) {
+        this.outputFile = outputFile;
+        this.keyToCIAO = keyToCIAO;
+        this.count = count;
+    }
+
+    /**
+     * Writes also the distinct words of each key, sorted.
+     *
+     * @param members The words of an accumulator (e.g. Function.identity() for the lists of words).
+     * @return This output.
+     */
+    public CiaoColumnarOutput<K, A> withMembers(Function<? super A, ? extends Collection<String>> members) {
+        this.members = members;
+        return this;
+    }
+
+    /**
+     * Writes the columnar file, replacing it if it exists.
+     *
+     * @param collectOutput The stream of pairs containing the keys and their accumulators.
+     * @throws OutputStrategyException If there's an issue with file I/O, or the file would exceed 2 GiB.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void output(Stream<Pair<K, A>> collectOutput) {
+        // The keys are encoded once, and sorted by their bytes like the reader compares them
+        Row<A>[] rows = collectOutput
+                .map(pair -> new Row<>(keyToCIAO.apply(pair.getKey()).getBytes(StandardCharsets.UTF_8),
+                        pair.getValue()))
+                .toArray(Row[]::new);
+        Arrays.parallelSort(rows, (first, second) -> Arrays.compareUnsigned(first.key(), second.key()));
+        try (FileChannel channel = FileChannel.open(outputFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The channel is closed by the try, once the header has been written
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                    1 << 16));
+            out.write(new byte[CiaoColumnarReader.HEADER_SIZE]);
+            writeKeyDictionary(out, rows);
+            int countsOffset = out.size();
+            int countsIndexOffset = writeColumn(out, rows, accumulator ->
+                    Varints.writeVarLong(out, count.applyAsLong(accumulator)));
+            int membersOffset = 0;
+            int membersIndexOffset = 0;
+            if (members != null) {
+                membersOffset = out.size();
+                membersIndexOffset = writeColumn(out, rows, accumulator -> {
+                    Set<String> words = new TreeSet<>(members.apply(accumulator));
+                    Varints.writeVarInt(out, words.size());
+                    for (String word : words) {
+                        WORD_CODEC.write(out, word);
+                    }
+                });
+            }
+            out.flush();
+            // DataOutputStream.size() stops at Integer.MAX_VALUE
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Columnar file too large: " + outputFile);
+            }
+            ByteBuffer header = ByteBuffer.allocate(CiaoColumnarReader.HEADER_SIZE)
+                    .putInt(CiaoColumnarReader.MAGIC)
+                    .putInt(members == null ? 0 : CiaoColumnarReader.MEMBERS)
+                    .putInt(rows.length)
+                    .putInt(CiaoColumnarReader.STRIDE)
+                    .putInt(countsOffset)
+                    .putInt(countsIndexOffset)
+                    .putInt(membersOffset)
+                    .putInt(membersIndexOffset)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } catch (IOException e) {
+            throw new OutputStrategyException(e);
+        }
+    }
+
+    private void writeKeyDictionary(DataOutputStream out, Row<A>[] rows) throws IOException {
+        int end = 0;
+        out.writeInt(end);
+        for (Row<A> row : rows) {
+            end += row.key().length;
+            out.writeInt(end);
+        }
+        for (Row<A> row : rows) {
+            out.write(row.key());
+        }
+    }
+
+    /**
+     * Writes the values of a column, followed by its index.
+     *
+     * @return The offset of the index.
+     */
+    private int writeColumn(DataOutputStream out, Row<A>[] rows, ColumnWriter<A> columnWriter) throws IOException {
+        int columnOffset = out.size();
+        int[] index = new int[(rows.length + CiaoColumnarReader.STRIDE - 1) / CiaoColumnarReader.STRIDE];
+        for (int id = 0; id < rows.length; id++) {
+            if (id % CiaoColumnarReader.STRIDE == 0) {
+                index[id / CiaoColumnarReader.STRIDE] = out.size() - columnOffset;
+            }
+            columnWriter.write(rows[id].accumulator());
+        }
+        int indexOffset = out.size();
+        for (int position : index) {
+            out.writeInt(position);
+        }
+        return indexOffset;
+    }
+
+    private record Row<A>(byte[] key, A accumulator) {
+    }
+
+    @FunctionalInterface
+    private interface ColumnWriter<A> {
+        void write(A accumulator) throws IOException;
+    }
+}
@@ -0,0 +1,242 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.codec.Varints;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reader of the files written by CiaoColumnarOutput. The file is memory-mapped, and each query decodes only what it
+ * needs: a binary search on the sorted key dictionary finds the identifier of a key, and the sparse index of each
+ * column points to the block of STRIDE values containing it. The reader can be shared by any number of threads.
+ * <p>
+ * Layout of a file, where the offsets are from the start of the file and the ints are big-endian:
+ * <ul>
+ *     <li>header: MAGIC, flags (MEMBERS), number of keys, STRIDE, and the offsets of the count column, of its index,
+ *     of the member column and of its index (0 without members);</li>
+ *     <li>key dictionary: the end of each key (an int, relative to the start of the keys, preceded by 0), followed
+ *     by the keys in UTF-8, sorted by their bytes; the identifier of a key is its position;</li>
+ *     <li>count column: the count of each key as a varint, by identifier, followed by its index: the position of
+ *     every STRIDE-th count (an int, relative to the start of the column);</li>
+ *     <li>member column: the distinct words of each key, as a varint followed by the words in the format of
+ *     Codec.utf8(), followed by its index.</li>
+ * </ul>
+ * Since the whole file is mapped at once, it is limited to 2 GiB.
+ */
+public final class CiaoColumnarReader {
+    // Identifies the columnar files, and their format
+    static final int MAGIC = 0x43494F01;
+    static final int MEMBERS = 1;
+    static final int HEADER_SIZE = 8 * Integer.BYTES;
+    // Number of values of a column between two entries of its index
+    static final int STRIDE = 64;
+
+    private final ByteBuffer file;
+    private final boolean hasMembers;
+    private final int numberOfKeys;
+    private final int stride;
+    private final int keysOffset;
+    private final int countsOffset;
+    private final int countsIndexOffset;
+    private final int membersOffset;
+    private final int membersIndexOffset;
+
+    /**
+     * Maps the file in memory.
+     *
+     * @param path The file written by CiaoColumnarOutput.
+     * @throws IOException If the file can't be read, or isn't a columnar file.
+     */
+    public CiaoColumnarReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Columnar file too large: " + path);
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (file.capacity() < HEADER_SIZE || file.getInt(0) != MAGIC) {
+            throw new IOException("Not a columnar file: " + path);
+        }
+        hasMembers = (file.getInt(Integer.BYTES) & MEMBERS) != 0;
+        numberOfKeys = file.getInt(2 * Integer.BYTES);
+        stride = file.getInt(3 * Integer.BYTES);
+        countsOffset = file.getInt(4 * Integer.BYTES);
+        countsIndexOffset = file.getInt(5 * Integer.BYTES);
+        membersOffset = file.getInt(6 * Integer.BYTES);
+        membersIndexOffset = file.getInt(7 * Integer.BYTES);
+        keysOffset = HEADER_SIZE + (numberOfKeys + 1) * Integer.BYTES;
+    }
+
+    /**
+     * @return The number of keys of the file.
+     */
+    public int size() {
+        return numberOfKeys;
+    }
+
+    /**
+     * @return Whether the file contains the words of each key.
+     */
+    public boolean hasMembers() {
+        return hasMembers;
+    }
+
+    /**
+     * @param key A 'CIAO' key.
+     * @return The number of anagrams of the key, or an empty OptionalLong if the key isn't in the file.
+     */
+    public OptionalLong count(String key) {
+        int id = idOf(key);
+        return id < 0 ? OptionalLong.empty() : OptionalLong.of(Varints.readVarLong(countColumnAt(id)));
+    }
+
+    /**
+     * @param key A 'CIAO' key.
+     * @return The distinct words of the key, sorted, or an empty list if the key isn't in the file.
+     * @throws IllegalStateException If the file doesn't contain the words of the keys.
+     */
+    public List<String> members(String key) {
+        if (!hasMembers) {
+            throw new IllegalStateException("The columnar file has no member column");
+        }
+        int id = idOf(key);
+        return id < 0 ? List.of() : readMembers(memberColumnAt(id));
+    }
+
+    /**
+     * Scans the keys between two bounds, in the order of their UTF-8 bytes (the order of the code points).
+     *
+     * @param fromKey The lowest key scanned, inclusive.
+     * @param toKey   The highest key scanned, exclusive.
+     * @return The keys and their numbers of anagrams, in key order.
+     */
+    public Stream<Pair<String, Long>> range(String fromKey, String toKey) {
+        int from = lowerBound(fromKey.getBytes(StandardCharsets.UTF_8));
+        int to = Math.max(from, lowerBound(toKey.getBytes(StandardCharsets.UTF_8)));
+        if (from == to) {
+            return Stream.empty();
+        }
+        ByteBuffer counts = countColumnAt(from);
+        Iterator<Pair<String, Long>> scan = new Iterator<>() {
+            private int id = from;
+
+            @Override
+            public boolean hasNext() {
+                return id < to;
+            }
+
+            @Override
+            public Pair<String, Long> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String key = keyAt(id++);
+                return new Pair<>(key, Varints.readVarLong(counts));
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(scan, to - from,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return The identifier of the key, or -1 if it isn't in the file.
+     */
+    private int idOf(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int id = lowerBound(bytes);
+        return id < numberOfKeys && compareKey(id, bytes) == 0 ? id : -1;
+    }
+
+    /**
+     * @return The identifier of the first key not lower than the given one.
+     */
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = numberOfKeys;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareKey(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareKey(int id, byte[] key) {
+        int start = keysOffset + file.getInt(HEADER_SIZE + id * Integer.BYTES);
+        int length = keysOffset + file.getInt(HEADER_SIZE + (id + 1) * Integer.BYTES) - start;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int difference = Byte.compareUnsigned(file.get(start + i), key[i]);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private String keyAt(int id) {
+        int start = keysOffset + file.getInt(HEADER_SIZE + id * Integer.BYTES);
+        byte[] bytes = new byte[keysOffset + file.getInt(HEADER_SIZE + (id + 1) * Integer.BYTES) - start];
+        file.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return A view of the file positioned at the count of the key.
+     */
+    private ByteBuffer countColumnAt(int id) {
+        ByteBuffer counts = columnBlockOf(id, countsOffset, countsIndexOffset);
+        for (int skipped = id % stride; skipped > 0; skipped--) {
+            Varints.readVarLong(counts);
+        }
+        return counts;
+    }
+
+    /**
+     * @return A view of the file positioned at the words of the key.
+     */
+    private ByteBuffer memberColumnAt(int id) {
+        ByteBuffer members = columnBlockOf(id, membersOffset, membersIndexOffset);
+        for (int skipped = id % stride; skipped > 0; skipped--) {
+            for (int words = Varints.readVarInt(members); words > 0; words--) {
+                int length = Varints.readVarInt(members);
+                members.position(members.position() + length);
+            }
+        }
+        return members;
+    }
+
+    private ByteBuffer columnBlockOf(int id, int columnOffset, int indexOffset) {
+        // Each query has its own view, so the reader can be shared by many threads
+        ByteBuffer column = file.duplicate();
+        column.position(columnOffset + file.getInt(indexOffset + id / stride * Integer.BYTES));
+        return column;
+    }
+
+    private static List<String> readMembers(ByteBuffer members) {
+        int words = Varints.readVarInt(members);
+        List<String> result = new ArrayList<>(words);
+        for (int word = 0; word < words; word++) {
+            byte[] bytes = new byte[Varints.readVarInt(members)];
+            members.get(bytes);
+            result.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+}
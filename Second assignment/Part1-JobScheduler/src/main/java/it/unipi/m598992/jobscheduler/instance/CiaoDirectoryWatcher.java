@@ -0,0 +1,220 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.exception.EmitStrategyException;
+import it.unipi.m598992.jobscheduler.exception.JobException;
+import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Long-running alternative to the runs of the JobScheduler: keeps the number of anagrams of each 'CIAO' key of the
+ * txt files of a directory up to date while the files are added, modified and deleted, and publishes it with the
+ * output strategy.
+ * The contribution of each file is kept, so a modified file replaces its previous contribution and a deleted file
+ * subtracts it, without reading the other files again. The changes are applied, and the output published, at most
+ * once per debounce interval, so a file being written is not read at every event.
+ * Only the files directly contained in the directory are watched.
+ */
+public class CiaoDirectoryWatcher implements Runnable, AutoCloseable {
+    private final Path directory;
+    private final OutputStrategy<String, Long> outputStrategy;
+    private final long debounceIntervalNanos;
+    private final WatchService watchService;
+    // Executor on which the changed files are read; when it is null they are read by the watching thread
+    private Executor executor;
+    // Number of words of each 'CIAO' key of each file, accessed only by the watching thread
+    private final Map<Path, Map<String, Long>> contributions = new HashMap<>();
+    private final Map<String, Long> liveAggregation = new ConcurrentHashMap<>();
+
+    /**
+     * Starts watching the directory: the changes happening from now on are applied by run().
+     *
+     * @param directory        The directory whose txt files are counted.
+     * @param outputStrategy   The strategy publishing the number of anagrams of each key (e.g. a CiaoWordCsvOutput,
+     *                         which rewrites its file at each publication).
+     * @param debounceInterval The maximum time between a change and the publication of its effect.
+     * @throws EmitStrategyException If the directory can't be watched.
+     */
+    public CiaoDirectoryWatcher(Path directory, OutputStrategy<String, Long> outputStrategy,
+                                Duration debounceInterval) {
+        this.directory = directory.toAbsolutePath();
+        this.outputStrategy = outputStrategy;
+        this.debounceIntervalNanos = debounceInterval.toNanos();
+        try {
+            this.watchService = directory.getFileSystem().newWatchService();
+            this.directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            throw new EmitStrategyException(e);
+        }
+    }
+
+    /**
+     * Reads the changed files on the given executor, concurrently, instead of on the watching thread.
+     *
+     * @param executor The executor on which the files are read, or null to read them on the watching thread.
+     * @return This watcher.
+     */
+    public CiaoDirectoryWatcher withExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Counts the txt files already in the directory, publishes the result and then applies the changes of the
+     * directory until the watcher is closed or the thread is interrupted.
+     */
+    @Override
+    public void run() {
+        Set<Path> changedFiles = new LinkedHashSet<>(listTxtFiles());
+        // The initial state is published without waiting
+        boolean unpublished = true;
+        long publicationDeadline = System.nanoTime();
+        try {
+            while (true) {
+                WatchKey watchKey;
+                if (!unpublished) {
+                    watchKey = watchService.take();
+                } else {
+                    long remaining = publicationDeadline - System.nanoTime();
+                    watchKey = remaining > 0 ? watchService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                }
+                if (watchKey == null) {
+                    // The debounce interval is over: apply all the changes received meanwhile at once
+                    update(changedFiles);
+                    changedFiles.clear();
+                    publish();
+                    unpublished = false;
+                    continue;
+                }
+                collectChangedFiles(watchKey, changedFiles);
+                watchKey.reset();
+                if (!unpublished && !changedFiles.isEmpty()) {
+                    unpublished = true;
+                    publicationDeadline = System.nanoTime() + debounceIntervalNanos;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // The watcher has been closed: stop watching
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return A copy of the current number of anagrams of each 'CIAO' key, including the changes not yet published.
+     */
+    public Map<String, Long> snapshot() {
+        return Map.copyOf(liveAggregation);
+    }
+
+    /**
+     * Stops watching the directory; run() returns as soon as it notices it.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new EmitStrategyException(e);
+        }
+    }
+
+    private void collectChangedFiles(WatchKey watchKey, Set<Path> changedFiles) {
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Some events have been lost: every file, known or new, may have changed
+                changedFiles.addAll(contributions.keySet());
+                changedFiles.addAll(listTxtFiles());
+            } else {
+                Path file = directory.resolve((Path) event.context());
+                // the same files as the ones listed at the start, whatever the case of their extension
+                if (CiaoWordDirectoryEmitter.isTxtFile(file)) {
+                    changedFiles.add(file);
+                }
+            }
+        }
+    }
+
+    private void update(Set<Path> changedFiles) {
+        List<Path> files = new ArrayList<>(changedFiles);
+        List<CompletableFuture<Map<String, Long>>> newContributions = files.stream()
+                .map(file -> executor == null
+                        ? CompletableFuture.completedFuture(countWords(file))
+                        : CompletableFuture.supplyAsync(() -> countWords(file), executor))
+                .toList();
+        for (int i = 0; i < files.size(); i++) {
+            Map<String, Long> newContribution = newContributions.get(i).join();
+            if (newContribution == null) {
+                // The file couldn't be read: its previous contribution is kept until its next event
+                continue;
+            }
+            Map<String, Long> oldContribution = newContribution.isEmpty()
+                    ? contributions.remove(files.get(i))
+                    : contributions.put(files.get(i), newContribution);
+            if (oldContribution != null) {
+                oldContribution.forEach((key, count) -> add(key, -count));
+            }
+            newContribution.forEach(this::add);
+        }
+    }
+
+    // Returns null if the file exists but couldn't be read
+    private Map<String, Long> countWords(Path file) {
+        if (!Files.isRegularFile(file)) {
+            // The file has been deleted
+            return Map.of();
+        }
+        try (Stream<Pair<String, String>> pairs = new CiaoWordReaderJob(file).execute()) {
+            return pairs.collect(Collectors.groupingBy(Pair::getKey, HashMap::new, Collectors.counting()));
+        } catch (JobException e) {
+            if (!Files.exists(file)) {
+                // The file has been deleted while being read
+                return Map.of();
+            }
+            // The file is still there (e.g. it is being replaced or is locked): it will be read again at its next
+            // event, and meanwhile its previous contribution is kept
+            return null;
+        }
+    }
+
+    private void add(String key, long count) {
+        // The keys whose count drops to 0 are removed
+        liveAggregation.compute(key, (ignored, current) -> {
+            long updated = (current == null ? 0 : current) + count;
+            return updated == 0 ? null : updated;
+        });
+    }
+
+    private void publish() {
+        outputStrategy.output(liveAggregation.entrySet().stream()
+                .map(entry -> new Pair<>(entry.getKey(), entry.getValue())));
+    }
+
+    private List<Path> listTxtFiles() {
+        try (Stream<Path> files = new CiaoWordDirectoryEmitter().withInputRoots(List.of(directory)).findTxtFiles()) {
+            return files.toList();
+        }
+    }
+}
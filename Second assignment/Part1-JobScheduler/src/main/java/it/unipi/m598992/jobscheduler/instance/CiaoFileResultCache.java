@@ -0,0 +1,227 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.codec.BlockInputStream;
+import it.unipi.m598992.jobscheduler.codec.BlockOutputStream;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.codec.Varints;
+import it.unipi.m598992.jobscheduler.exception.JobCacheException;
+import it.unipi.m598992.jobscheduler.strategy.JobCache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Implementation of the JobCache interface that stores the partial aggregation of each CiaoWordReaderJob in a file
+ * of a local cache directory, so that a run over a corpus where only a few documents have changed executes only
+ * the jobs of those documents.
+ * Each entry is identified by the path of the document and by the byte range of the split, and records the size,
+ * the modification time and a CRC-32C of the content of the document when it was read. An entry is used if the
+ * size is unchanged and either the modification time or the content hash is unchanged, so a document that has only
+ * been touched is not read again. The entries are written in the block format (see BlockOutputStream), so a
+ * corrupted entry is detected and treated as missing.
+ * The fingerprint stored with an entry is taken by lookup(), before the job reads the document, so a document
+ * changed while it was being read is stored with its old fingerprint and read again by the next run.
+ *
+ * @param <A> The type of the accumulators (e.g. the number of words of each 'CIAO' key).
+ */
+public class CiaoFileResultCache<A> implements JobCache<String, A> {
+    // Identifies the files written by this class, and their format
+    private static final int MAGIC = 0x43494102;
+    private static final int HASH_WINDOW_SIZE = 1 << 24;
+    private static final Codec<String> STRING_CODEC = Codec.utf8();
+
+    private final Path cacheDirectory;
+    private final Codec<A> accumulatorCodec;
+    // Fingerprints of the documents already hashed, shared by all the splits of a document
+    private final Map<Path, FileFingerprint> fingerprints = new ConcurrentHashMap<>();
+    // Fingerprints of the documents of the jobs looked up and not yet stored (weak keys: a job that isn't stored,
+    // e.g. because it has failed, doesn't keep its entry)
+    private final Map<AJob<String, ?>, FileFingerprint> fingerprintsBeforeExecution =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param cacheDirectory   The directory in which the entries are kept; it is created if it doesn't exist.
+     * @param accumulatorCodec The codec used to write the accumulators in the entries.
+     * @throws JobCacheException If the directory can't be created.
+     */
+    public CiaoFileResultCache(Path cacheDirectory, Codec<A> accumulatorCodec) {
+        try {
+            this.cacheDirectory = Files.createDirectories(cacheDirectory);
+        } catch (IOException e) {
+            throw new JobCacheException(e);
+        }
+        this.accumulatorCodec = accumulatorCodec;
+    }
+
+    /**
+     * Reads the entry of the split of the job, if the document hasn't changed since it was written.
+     * An entry that can't be read (e.g. because it was truncated) is treated as missing. When the job must be
+     * executed, the fingerprint of its document is taken now, and written by store().
+     *
+     * @param job The job about to be executed; only the CiaoWordReaderJob instances are cached.
+     * @return The number of words of each 'CIAO' key of the split, or an empty Optional if the job must be executed.
+     */
+    @Override
+    public Optional<Map<String, A>> lookup(AJob<String, ?> job) {
+        if (!(job instanceof CiaoWordReaderJob readerJob)) {
+            return Optional.empty();
+        }
+        Optional<Map<String, A>> aggregation = readEntry(readerJob.getSplit());
+        if (aggregation.isEmpty()) {
+            try {
+                fingerprintsBeforeExecution.put(job, fingerprintOf(readerJob.getSplit().getPath()));
+            } catch (IOException e) {
+                // The job fails reading the document, so it isn't stored
+            }
+        }
+        return aggregation;
+    }
+
+    private Optional<Map<String, A>> readEntry(FileSplit split) {
+        Path entry = entryOf(split);
+        if (!Files.exists(entry)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BlockInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() != MAGIC || !STRING_CODEC.read(in).equals(split.getPath().toString())
+                    || in.readLong() != split.getStart() || in.readLong() != split.getEnd()) {
+                return Optional.empty();
+            }
+            FileFingerprint stored = new FileFingerprint(in.readLong(), in.readLong(), in.readLong());
+            if (!isUnchanged(split.getPath(), stored)) {
+                return Optional.empty();
+            }
+            int numberOfKeys = Varints.readVarInt(in);
+            Map<String, A> aggregation = new HashMap<>();
+            for (int i = 0; i < numberOfKeys; i++) {
+                aggregation.put(STRING_CODEC.read(in), accumulatorCodec.read(in));
+            }
+            return Optional.of(aggregation);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the entry of the split of the job with the fingerprint its document had before the job was executed.
+     * The entry is written in a temporary file and then renamed, so a run interrupted while writing never leaves a
+     * partial entry.
+     *
+     * @param job                The job executed, after lookup(); only the CiaoWordReaderJob instances are cached,
+     *                           and a job not looked up isn't stored.
+     * @param partialAggregation The number of words of each 'CIAO' key of the split.
+     * @throws JobCacheException If the entry can't be written.
+     */
+    @Override
+    public void store(AJob<String, ?> job, Map<String, A> partialAggregation) {
+        if (!(job instanceof CiaoWordReaderJob readerJob)) {
+            return;
+        }
+        FileFingerprint fingerprint = fingerprintsBeforeExecution.remove(job);
+        if (fingerprint == null) {
+            return;
+        }
+        FileSplit split = readerJob.getSplit();
+        try {
+            Path temporaryEntry = Files.createTempFile(cacheDirectory, "entry", ".tmp");
+            try {
+                writeEntry(temporaryEntry, split, fingerprint, partialAggregation);
+                Files.move(temporaryEntry, entryOf(split), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryEntry);
+            }
+        } catch (IOException e) {
+            throw new JobCacheException(e);
+        }
+    }
+
+    private void writeEntry(Path entry, FileSplit split, FileFingerprint fingerprint,
+                            Map<String, A> partialAggregation) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BlockOutputStream(Files.newOutputStream(entry)))) {
+            out.writeInt(MAGIC);
+            STRING_CODEC.write(out, split.getPath().toString());
+            out.writeLong(split.getStart());
+            out.writeLong(split.getEnd());
+            out.writeLong(fingerprint.size());
+            out.writeLong(fingerprint.lastModified());
+            out.writeLong(fingerprint.contentHash());
+            Varints.writeVarInt(out, partialAggregation.size());
+            for (Map.Entry<String, A> keyAndAccumulator : partialAggregation.entrySet()) {
+                STRING_CODEC.write(out, keyAndAccumulator.getKey());
+                accumulatorCodec.write(out, keyAndAccumulator.getValue());
+            }
+        }
+    }
+
+    private boolean isUnchanged(Path path, FileFingerprint stored) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attributes.size() != stored.size()) {
+            return false;
+        }
+        // the content is hashed only if the document has been touched
+        return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) == stored.lastModified()
+                || fingerprintOf(path).contentHash() == stored.contentHash();
+    }
+
+    private FileFingerprint fingerprintOf(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        FileFingerprint known = fingerprints.get(path);
+        if (known != null && known.size() == size && known.lastModified() == lastModified) {
+            return known;
+        }
+        FileFingerprint fingerprint = new FileFingerprint(size, lastModified, hashContent(path, size));
+        fingerprints.put(path, fingerprint);
+        return fingerprint;
+    }
+
+    private static long hashContent(Path path, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long position = 0; position < size; position += HASH_WINDOW_SIZE) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(HASH_WINDOW_SIZE, size - position));
+                crc.update(window);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private Path entryOf(FileSplit split) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] name = digest.digest((split.getPath() + "\0" + split.getStart() + "\0" + split.getEnd())
+                    .getBytes(StandardCharsets.UTF_8));
+            return cacheDirectory.resolve(HexFormat.of().formatHex(name, 0, 16) + ".bin");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new JobCacheException(e);
+        }
+    }
+
+    private record FileFingerprint(long size, long lastModified, long contentHash) {
+    }
+}
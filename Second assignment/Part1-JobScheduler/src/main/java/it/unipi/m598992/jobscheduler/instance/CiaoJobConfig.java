@@ -0,0 +1,251 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.jobscheduler.FailurePolicy;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Configuration of a run of CiaoJobRunner: which documents are read, where the csv file is written and
+ * which resources the run may use. The settings not given keep their default values.
+ */
+public class CiaoJobConfig {
+
+    /**
+     * Format of the output file.
+     */
+    public enum OutputFormat {
+        CSV,
+        // See CiaoColumnarOutput
+        COLUMNAR
+    }
+
+    /**
+     * Order of the keys in the output file.
+     */
+    public enum ReportOrder {
+        // The order in which the keys are collected
+        UNSORTED,
+        BY_KEY,
+        // From the key with the most anagrams
+        BY_COUNT
+    }
+
+    private final List<Path> inputRoots;
+    private final Path outputFile;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long memoryBudget = Long.MAX_VALUE;
+    private long splitSize = Long.MAX_VALUE;
+    private int maxDepth = 1;
+    // When null, all the documents are read at each run
+    private Path cacheDirectory;
+    private FailurePolicy failurePolicy = FailurePolicy.failFast();
+    // When null, a stopped run starts again from the first document
+    private Path checkpointFile;
+    // When empty, the documents are read by this JVM
+    private List<InetSocketAddress> workers = List.of();
+    private OutputFormat outputFormat = OutputFormat.CSV;
+    private ReportOrder reportOrder = ReportOrder.UNSORTED;
+    // When 0, all the keys are written
+    private int topKeys;
+
+    /**
+     * @param inputRoots The directories whose txt files are read.
+     * @param outputFile The file written (a csv file by default) with the number of anagrams of each 'CIAO' key.
+     */
+    public CiaoJobConfig(List<Path> inputRoots, Path outputFile) {
+        if (inputRoots.isEmpty()) {
+            throw new IllegalArgumentException("At least one input directory is needed");
+        }
+        this.inputRoots = List.copyOf(inputRoots);
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * @param parallelism The number of worker threads (the number of available cores by default); 1 executes the
+     *                    jobs sequentially on the calling thread.
+     * @return This configuration.
+     */
+    public CiaoJobConfig withParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param memoryBudget The maximum number of distinct keys aggregated in memory before they are spilled to disk
+     *                     (see ExternalSortCollectStrategy); unlimited by default. The budget applies to each
+     *                     partition, since each partition aggregates its keys in its own buffer.
+     * @return This configuration.
+     */
+    public CiaoJobConfig withMemoryBudget(long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * @param splitSize The maximum number of bytes read by a job: larger documents are divided in splits.
+     * @return This configuration.
+     */
+    public CiaoJobConfig withSplitSize(long splitSize) {
+        if (splitSize <= 0) {
+            throw new IllegalArgumentException("The split size must be positive: " + splitSize);
+        }
+        this.splitSize = splitSize;
+        return this;
+    }
+
+    /**
+     * @param maxDepth The maximum number of directory levels visited under each input directory (1 by default).
+     * @return This configuration.
+     */
+    public CiaoJobConfig withMaxDepth(int maxDepth) {
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException("The maximum depth must be positive: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Enables the incremental runs: the number of anagrams of each document is kept in the given directory and
+     * reused by the following runs with the same cache directory, until the document changes.
+     *
+     * @param cacheDirectory The directory of the cache (see CiaoFileResultCache).
+     * @return This configuration.
+     */
+    public CiaoJobConfig withCacheDirectory(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
+    /**
+     * @param failurePolicy How the documents that can't be read are handled (FailurePolicy.failFast() by default):
+     *                      e.g. FailurePolicy.skipAndReport() counts the other documents and reports the skipped
+     *                      ones in the result of the run.
+     * @return This configuration.
+     */
+    public CiaoJobConfig withFailurePolicy(FailurePolicy failurePolicy) {
+        this.failurePolicy = failurePolicy;
+        return this;
+    }
+
+    /**
+     * Enables the checkpoints: the documents already counted are periodically saved in the given file, so that a run
+     * stopped before writing the csv file resumes from them when it is run again with the same checkpoint file.
+     *
+     * @param checkpointFile The checkpoint file, deleted once the csv file has been written.
+     * @return This configuration.
+     */
+    public CiaoJobConfig withCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        return this;
+    }
+
+    /**
+     * Enables the distributed mode: the documents are read by the given workers (e.g. started with
+     * 'Main --worker port'), while this JVM collects their counts and writes the csv file. The parallelism is then
+     * ignored.
+     *
+     * @param workers The addresses of the workers, or an empty list to read the documents in this JVM.
+     * @return This configuration.
+     */
+    public CiaoJobConfig withWorkers(List<InetSocketAddress> workers) {
+        this.workers = List.copyOf(workers);
+        return this;
+    }
+
+    /**
+     * @param outputFormat The format of the output file (OutputFormat.CSV by default); a columnar file can be queried
+     *                     with CiaoColumnarReader.
+     * @return This configuration.
+     */
+    public CiaoJobConfig withOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+        return this;
+    }
+
+    /**
+     * @param reportOrder The order of the keys in the output file (ReportOrder.UNSORTED by default).
+     * @return This configuration.
+     */
+    public CiaoJobConfig withReportOrder(ReportOrder reportOrder) {
+        this.reportOrder = reportOrder;
+        return this;
+    }
+
+    /**
+     * Writes in the output file only the keys with the most anagrams, from the key with the most anagrams; the report
+     * order is then ignored.
+     *
+     * @param topKeys The number of keys written.
+     * @return This configuration.
+     */
+    public CiaoJobConfig withTopKeys(int topKeys) {
+        if (topKeys <= 0) {
+            throw new IllegalArgumentException("The number of keys must be positive: " + topKeys);
+        }
+        this.topKeys = topKeys;
+        return this;
+    }
+
+    public List<Path> getInputRoots() {
+        return inputRoots;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public long getSplitSize() {
+        return splitSize;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public Optional<Path> getCacheDirectory() {
+        return Optional.ofNullable(cacheDirectory);
+    }
+
+    public Optional<Path> getCheckpointFile() {
+        return Optional.ofNullable(checkpointFile);
+    }
+
+    public List<InetSocketAddress> getWorkers() {
+        return workers;
+    }
+
+    public FailurePolicy getFailurePolicy() {
+        return failurePolicy;
+    }
+
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    public ReportOrder getReportOrder() {
+        return reportOrder;
+    }
+
+    public OptionalInt getTopKeys() {
+        return topKeys == 0 ? OptionalInt.empty() : OptionalInt.of(topKeys);
+    }
+}
@@ -0,0 +1,86 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.jobscheduler.CheckpointConfig;
+import it.unipi.m598992.jobscheduler.DistributedConfig;
+import it.unipi.m598992.jobscheduler.JobResult;
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.collect.ExternalSortCollectStrategy;
+import it.unipi.m598992.jobscheduler.output.SortedOutputStrategy;
+import it.unipi.m598992.jobscheduler.output.TopKOutputStrategy;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Non-interactive entry point for counting the anagrams of the documents of some directories: each run is described
+ * by a CiaoJobConfig, so a program (e.g. a batch orchestrator) can execute many runs in the same JVM, which stays
+ * warm between them. The worker threads are kept by the runner and reused by the runs with the same parallelism,
+ * until the runner is closed.
+ */
+public class CiaoJobRunner implements AutoCloseable {
+    private final Map<Integer, ForkJoinPool> executors = new ConcurrentHashMap<>();
+
+    /**
+     * Counts the anagrams of each 'CIAO' key in the documents of the input directories of the configuration and
+     * writes them in its output file.
+     *
+     * @param config The configuration of the run.
+     * @return The elapsed time, the number of jobs and keys, the hits and misses of the cache of the run and the
+     * documents skipped by the failure policy.
+     * @throws it.unipi.m598992.jobscheduler.exception.EmitStrategyException   If the input can't be read.
+     * @throws it.unipi.m598992.jobscheduler.exception.OutputStrategyException If the output can't be written.
+     */
+    public JobResult run(CiaoJobConfig config) {
+        CiaoWordDirectoryEmitter emitter = new CiaoWordDirectoryEmitter(config.getSplitSize())
+                .withInputRoots(config.getInputRoots())
+                .withRecursiveWalk(config.getMaxDepth());
+        JobScheduler<String, String, Long> jobScheduler = new JobScheduler<>(emitter, AggregationStrategy.counting(),
+                outputOf(config))
+                .withFailurePolicy(config.getFailurePolicy());
+        if (!config.getWorkers().isEmpty()) {
+            jobScheduler.withDistributedWorkers(new DistributedConfig<>(config.getWorkers(), CiaoWordReaderJob.codec(),
+                    Codec.utf8(), Codec.varint64()));
+        } else if (config.getParallelism() > 1) {
+            jobScheduler.withExecutor(executors.computeIfAbsent(config.getParallelism(), ForkJoinPool::new));
+        }
+        if (config.getMemoryBudget() != Long.MAX_VALUE) {
+            jobScheduler.withCollectStrategy(new ExternalSortCollectStrategy<>(Comparator.naturalOrder(),
+                    Codec.utf8(), Codec.varint64(), config.getMemoryBudget()));
+        }
+        config.getCacheDirectory().ifPresent(cacheDirectory ->
+                jobScheduler.withJobCache(new CiaoFileResultCache<>(cacheDirectory, Codec.varint64())));
+        config.getCheckpointFile().ifPresent(checkpointFile -> jobScheduler.withCheckpoint(
+                new CheckpointConfig<>(checkpointFile, Codec.utf8(), Codec.varint64())));
+        return jobScheduler.runSteps();
+    }
+
+    private static OutputStrategy<String, Long> outputOf(CiaoJobConfig config) {
+        OutputStrategy<String, Long> fileOutput = switch (config.getOutputFormat()) {
+            case CSV -> new CiaoWordCsvOutput<String, Long>(config.getOutputFile(), String::valueOf)
+                    .withFormattingThreads(config.getParallelism());
+            case COLUMNAR -> new CiaoColumnarOutput<>(config.getOutputFile(), String::valueOf, Long::longValue);
+        };
+        if (config.getTopKeys().isPresent()) {
+            return TopKOutputStrategy.byCount(config.getTopKeys().getAsInt(), Long::longValue, fileOutput);
+        }
+        return switch (config.getReportOrder()) {
+            case UNSORTED -> fileOutput;
+            case BY_KEY -> SortedOutputStrategy.byKey(fileOutput);
+            case BY_COUNT -> SortedOutputStrategy.byCount(Long::longValue, fileOutput);
+        };
+    }
+
+    /**
+     * Shuts down the worker threads created by the runs.
+     */
+    @Override
+    public void close() {
+        executors.values().forEach(ForkJoinPool::shutdown);
+        executors.clear();
+    }
+}
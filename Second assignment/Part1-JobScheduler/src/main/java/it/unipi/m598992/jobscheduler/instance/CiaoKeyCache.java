@@ -0,0 +1,99 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+/**
+ * Bounded cache from the words made of ASCII letters to their 'CIAO' keys. Each word is stored in the slot
+ * given by its hash, replacing the previous one (direct-mapped cache): a word already seen costs a lookup,
+ * without sorting its letters and without allocating new strings, since the cached instances of the word and
+ * of the key are returned. On a miss, the key is computed with a counting sort over the 26 letters.
+ * The cache is not thread-safe: each execution of a job uses its own.
+ */
+final class CiaoKeyCache {
+    private static final int ALPHABET_SIZE = 26;
+
+    private final String[] words;
+    private final String[] keys;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity The number of slots of the cache, rounded up to a power of 2.
+     */
+    CiaoKeyCache(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.words = new String[slots];
+        this.keys = new String[slots];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Looks up a word, caching it if it's not present.
+     *
+     * @param letters The buffer containing the ASCII letters of the word.
+     * @param length  The length of the word.
+     * @return The slot of the word, to be used with word() and key().
+     */
+    int lookup(char[] letters, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + letters[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        if (contains(slot, letters, length)) {
+            hits++;
+        } else {
+            misses++;
+            words[slot] = new String(letters, 0, length);
+            keys[slot] = toCIAO(letters, length);
+        }
+        return slot;
+    }
+
+    String word(int slot) {
+        return words[slot];
+    }
+
+    String key(int slot) {
+        return keys[slot];
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Computes the 'CIAO' key of a word made of ASCII letters with a counting sort over the 26 letters.
+     */
+    static String toCIAO(char[] letters, int length) {
+        int[] letterCounts = new int[ALPHABET_SIZE];
+        for (int i = 0; i < length; i++) {
+            // Setting the 0x20 bit converts an ASCII letter to lowercase
+            letterCounts[(letters[i] | 0x20) - 'a']++;
+        }
+        char[] key = new char[length];
+        int position = 0;
+        for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+            for (int count = letterCounts[letter]; count > 0; count--) {
+                key[position++] = (char) ('a' + letter);
+            }
+        }
+        return new String(key);
+    }
+
+    private boolean contains(int slot, char[] letters, int length) {
+        String cached = words[slot];
+        if (cached == null || cached.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (cached.charAt(i) != letters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.auxfile.LongIntHashMap;
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.ProcessLocalKeys;
+import it.unipi.m598992.jobscheduler.exception.JobException;
+import it.unipi.m598992.jobscheduler.metrics.InputMetrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of a job for reading a file, or a split of it, and returning, for each 'CIAO' key, the pair (signature(ciao(w)), n)
+ * where n is the number of words of the file with that key. The words are counted while the file is scanned, in a
+ * primitive map from the signatures to the counts, so no string is created for the words or for their keys.
+ * The signatures of the longest keys are valid only in this JVM (see CiaoSignatures), so these jobs can't be run with
+ * a job cache, a checkpoint, distributed workers or an ExternalSortCollectStrategy.
+ */
+public class CiaoSignatureCountJob extends AJob<Long, Integer> implements InputMetrics, ProcessLocalKeys {
+    private final FileSplit split;
+    private final CiaoSignatures signatures;
+    // Recorded when the split has been read
+    private volatile long bytesRead;
+    private volatile long tokensRead;
+
+    /**
+     * @param split      The split of the file to read.
+     * @param signatures The signatures of the 'CIAO' keys, shared by all the jobs and by the output.
+     */
+    public CiaoSignatureCountJob(FileSplit split, CiaoSignatures signatures) {
+        this.split = split;
+        this.signatures = signatures;
+    }
+
+    public CiaoSignatureCountJob(Path path, CiaoSignatures signatures) {
+        this(FileSplit.wholeFile(path), signatures);
+    }
+
+    /**
+     * Reads the whole split and returns a stream containing a pair (signature, number of words) for each
+     * 'CIAO' key found in it.
+     *
+     * @return A stream of pairs representing the signature of a 'CIAO' key and the number of its words.
+     * @throws JobException If there's an issue with reading the file.
+     */
+    @Override
+    public Stream<Pair<Long, Integer>> execute() {
+        LongIntHashMap countsBySignature = new LongIntHashMap();
+        try (CiaoWordTokenizer tokenizer = new CiaoWordTokenizer(split.getPath(), split.getStart(), split.getEnd())) {
+            while (tokenizer.nextWord()) {
+                countsBySignature.addTo(signatures.signatureOf(tokenizer.word(), tokenizer.wordLength()), 1);
+            }
+            bytesRead = tokenizer.bytesScanned();
+            tokensRead = tokenizer.tokensScanned();
+        } catch (IOException e) {
+            throw new JobException(e);
+        }
+        return countsBySignature.entries();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public long getTokensRead() {
+        return tokensRead;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " " + split;
+    }
+}
@@ -0,0 +1,54 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.exception.EmitStrategyException;
+import it.unipi.m598992.jobscheduler.strategy.EmitStrategy;
+
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the EmitStrategy interface for counting the words of each 'CIAO' key, packed in a signature,
+ * in the documents of a user-specified directory.
+ */
+public class CiaoSignatureDirectoryEmitter implements EmitStrategy<Long, Integer> {
+    private final CiaoWordDirectoryEmitter directoryEmitter;
+    private final CiaoSignatures signatures;
+
+    /**
+     * @param signatures The signatures of the 'CIAO' keys, shared with the output to convert them back.
+     */
+    public CiaoSignatureDirectoryEmitter(CiaoSignatures signatures) {
+        this(signatures, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param signatures The signatures of the 'CIAO' keys, shared with the output to convert them back.
+     * @param splitSize  The maximum number of bytes read by a job: larger documents are divided in splits.
+     */
+    public CiaoSignatureDirectoryEmitter(CiaoSignatures signatures, long splitSize) {
+        this(signatures, new CiaoWordDirectoryEmitter(splitSize));
+    }
+
+    /**
+     * @param signatures       The signatures of the 'CIAO' keys, shared with the output to convert them back.
+     * @param directoryEmitter The emitter that selects the documents and divides them in splits (e.g. configured
+     *                         with a recursive walk and glob patterns).
+     */
+    public CiaoSignatureDirectoryEmitter(CiaoSignatures signatures, CiaoWordDirectoryEmitter directoryEmitter) {
+        this.directoryEmitter = directoryEmitter;
+        this.signatures = signatures;
+    }
+
+    /**
+     * Visits the directory requested by user and creates a new job for each txt file (or split of it)
+     * in that directory.
+     *
+     * @return A stream of AJob instances, each counting the words of a document.
+     * @throws EmitStrategyException If there's an issue with reading the directory or creating jobs.
+     */
+    @Override
+    public Stream<AJob<Long, Integer>> emit() {
+        return directoryEmitter.findSplits()
+                .map(split -> new CiaoSignatureCountJob(split, signatures));
+    }
+}
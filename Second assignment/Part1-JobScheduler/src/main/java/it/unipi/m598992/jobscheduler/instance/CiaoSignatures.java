@@ -0,0 +1,77 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Packs the 'CIAO' keys in a single long (signature), so that they can be grouped without creating strings.
+ * The signature of a key of at most 13 letters is the base-27 number whose digits are its letters ('a' = 1, ...,
+ * 'z' = 26): it's positive, it's different for each key and it can be converted back without any lookup.
+ * The rare keys with more letters get a negative signature from a shared dictionary, assigned in order of first
+ * appearance: those signatures are meaningful only to this instance, so they must not be written anywhere another
+ * JVM, or another instance, would read them back (the jobs using them implement ProcessLocalKeys).
+ * This class is thread-safe, so a single instance can be shared by all the jobs and by the output.
+ */
+public final class CiaoSignatures {
+    private static final int ALPHABET_SIZE = 26;
+    private static final int RADIX = ALPHABET_SIZE + 1;
+    // 27^13 < 2^63, so the keys of at most 13 letters always fit in a positive long
+    private static final int MAX_PACKED_LENGTH = 13;
+
+    private final Map<String, Long> overflowSignatures = new ConcurrentHashMap<>();
+    private final Map<Long, String> overflowKeys = new ConcurrentHashMap<>();
+    private final AtomicLong nextOverflowSignature = new AtomicLong(-1);
+
+    /**
+     * Computes the signature of the 'CIAO' key of a word.
+     *
+     * @param letters The buffer containing the ASCII letters of the word.
+     * @param length  The length of the word.
+     * @return The signature of the key of the word.
+     */
+    public long signatureOf(char[] letters, int length) {
+        if (length > MAX_PACKED_LENGTH) {
+            return overflowSignatureOf(CiaoKeyCache.toCIAO(letters, length));
+        }
+        int[] letterCounts = new int[ALPHABET_SIZE];
+        for (int i = 0; i < length; i++) {
+            // Setting the 0x20 bit converts an ASCII letter to lowercase
+            letterCounts[(letters[i] | 0x20) - 'a']++;
+        }
+        // The letters are added in lexicographic order, i.e. the digits are the letters of the key
+        long signature = 0;
+        for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+            for (int count = letterCounts[letter]; count > 0; count--) {
+                signature = signature * RADIX + letter + 1;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Converts a signature back to its 'CIAO' key.
+     *
+     * @param signature A signature returned by signatureOf().
+     * @return The 'CIAO' key.
+     */
+    public String toCIAO(long signature) {
+        if (signature < 0) {
+            return overflowKeys.get(signature);
+        }
+        char[] key = new char[MAX_PACKED_LENGTH];
+        int start = key.length;
+        for (long digits = signature; digits > 0; digits /= RADIX) {
+            key[--start] = (char) ('a' + digits % RADIX - 1);
+        }
+        return new String(key, start, key.length - start);
+    }
+
+    private long overflowSignatureOf(String key) {
+        return overflowSignatures.computeIfAbsent(key, k -> {
+            long signature = nextOverflowSignature.getAndDecrement();
+            overflowKeys.put(signature, k);
+            return signature;
+        });
+    }
+}
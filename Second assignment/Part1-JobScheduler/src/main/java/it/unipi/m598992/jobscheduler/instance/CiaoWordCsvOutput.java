@@ -2,51 +2,195 @@ package it.unipi.m598992.jobscheduler.instance;
 
 import it.unipi.m598992.auxfile.Pair;
 import it.unipi.m598992.jobscheduler.exception.OutputStrategyException;
-import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+import it.unipi.m598992.jobscheduler.strategy.PartitionedOutputStrategy;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
  * Implementation of the OutputStrategy interface for writing in a csv file the list of 'CIAO' keys and the number of words
- * associated with each key
+ * associated with each key. When the scheduler is partitioned, each partition is written in its own csv file, named
+ * after the output file with the index of the partition (e.g. count_anagrams-00003.csv).
+ * The files are encoded in UTF-8: the lines are formatted into a large reusable buffer (see CsvLineBuffer) written
+ * through a FileChannel, and can be formatted by several threads (see withFormattingThreads()).
+ *
+ * @param <K> The type of the keys, converted to the 'CIAO' form only when they are written.
+ * @param <N> The type of the number of words.
  */
-public class CiaoWordCsvOutput implements OutputStrategy<String, String> {
+public class CiaoWordCsvOutput<K, N extends Number> implements PartitionedOutputStrategy<K, N> {
+    private static final Path DEFAULT_OUTPUT_FILE = Path.of("count_anagrams.csv");
+    // Bytes of lines formatted before being written
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Pairs formatted by a task when the lines are formatted by several threads
+    private static final int BATCH_SIZE = 16_384;
+    private final Path outputFile;
+    private final Function<? super K, String> keyToCIAO;
+    private int formattingThreads = 1;
+
+    /**
+     * Creates the output for keys that are already in the 'CIAO' form, written in the file count_anagrams.csv
+     */
+    public CiaoWordCsvOutput() {
+        this(String::valueOf);
+    }
+
+    /**
+     * @param keyToCIAO The function converting a key to its 'CIAO' form (e.g. CiaoSignatures::toCIAO).
+     */
+    public CiaoWordCsvOutput(Function<? super K, String> keyToCIAO) {
+        this(DEFAULT_OUTPUT_FILE, keyToCIAO);
+    }
+
+    /**
+     * @param outputFile The csv file written.
+     * @param keyToCIAO  The function converting a key to its 'CIAO' form (e.g. CiaoSignatures::toCIAO).
+     */
+    public CiaoWordCsvOutput(Path outputFile, Function<? super K, String> keyToCIAO) {
+        this.outputFile = outputFile;
+        this.keyToCIAO = keyToCIAO;
+    }
+
+    /**
+     * @param formattingThreads The number of threads formatting the lines of output(), which are then written in
+     *                          order (1 by default, i.e. the lines are formatted by the calling thread). The partitions
+     *                          of a partitioned run are written by the threads of the scheduler, so they are always
+     *                          formatted by the calling thread.
+     * @return This output.
+     */
+    public CiaoWordCsvOutput<K, N> withFormattingThreads(int formattingThreads) {
+        if (formattingThreads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive: " + formattingThreads);
+        }
+        this.formattingThreads = formattingThreads;
+        return this;
+    }
 
     /**
      * Writes the list of 'CIAO' keys and the number of anagrams associated with each key,
-     * one per line, in the file count_anagrams.csv
+     * one per line, in the output file (count_anagrams.csv by default)
      *
-     * @param collectOutput The stream of pairs containing 'CIAO' keys and associated anagrams.
+     * @param collectOutput The stream of pairs containing 'CIAO' keys and the number of associated anagrams.
      * @throws OutputStrategyException If there's an issue with file I/O.
      */
     @Override
-    public void output(Stream<Pair<String, List<String>>> collectOutput) {
-        // Open the file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("count_anagrams.csv"))) {
-            // For each pair, write to the file in CSV format
-            collectOutput.forEach(pair -> writeToFileInCsvFormat(writer, pair));
+    public void output(Stream<Pair<K, N>> collectOutput) {
+        writeCsvFile(outputFile, collectOutput, formattingThreads);
+    }
+
+    /**
+     * Writes the 'CIAO' keys of a partition and the number of anagrams associated with each key,
+     * one per line, in the file count_anagrams-NNNNN.csv (named after the output file), where NNNNN is the index
+     * of the partition
+     *
+     * @param partition       The index of the partition.
+     * @param partitionOutput The stream of pairs of the partition.
+     * @throws OutputStrategyException If there's an issue with file I/O.
+     */
+    @Override
+    public void outputPartition(int partition, Stream<Pair<K, N>> partitionOutput) {
+        writeCsvFile(partitionFile(partition), partitionOutput, 1);
+    }
+
+    private Path partitionFile(int partition) {
+        String fileName = outputFile.getFileName().toString();
+        int extensionStart = fileName.lastIndexOf('.');
+        String baseName = extensionStart < 0 ? fileName : fileName.substring(0, extensionStart);
+        String extension = extensionStart < 0 ? "" : fileName.substring(extensionStart);
+        return outputFile.resolveSibling(String.format("%s-%05d%s", baseName, partition, extension));
+    }
+
+    private void writeCsvFile(Path file, Stream<Pair<K, N>> collectOutput, int threads) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (threads == 1) {
+                writeCsvLines(channel, collectOutput.iterator());
+            } else {
+                writeCsvLinesInParallel(channel, collectOutput.iterator(), threads);
+            }
         } catch (IOException e) {
             // Throw an exception if there's an issue with file I/O
             throw new OutputStrategyException(e);
         }
     }
 
-    private void writeToFileInCsvFormat(BufferedWriter writer, Pair<String, List<String>> pair) {
+    private void writeCsvLines(FileChannel channel, Iterator<Pair<K, N>> pairs) throws IOException {
+        CsvLineBuffer lines = new CsvLineBuffer(BUFFER_SIZE);
+        while (pairs.hasNext()) {
+            Pair<K, N> pair = pairs.next();
+            lines.appendLine(keyToCIAO.apply(pair.getKey()), pair.getValue());
+            if (lines.size() >= BUFFER_SIZE) {
+                lines.writeTo(channel);
+                lines.clear();
+            }
+        }
+        lines.writeTo(channel);
+    }
+
+    /**
+     * Formats batches of pairs on the threads, and writes them in the order of the stream as soon as they are
+     * formatted; at most two batches per thread wait to be written, so the memory used is bounded.
+     */
+    private void writeCsvLinesInParallel(FileChannel channel, Iterator<Pair<K, N>> pairs, int threads)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-output");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Buffers already written, reused by the next batches
+        Queue<CsvLineBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+        Deque<CompletableFuture<CsvLineBuffer>> formattedBatches = new ArrayDeque<>();
         try {
-            // Create a CSV representation of the Pair and write to the file
-            String csvLine = createCsvLine(pair);
-            writer.write(csvLine);
-        } catch (IOException e) {
-            // Throw an exception if there's an issue with writing to the file
-            throw new OutputStrategyException(e);
+            while (pairs.hasNext()) {
+                List<Pair<K, N>> batch = new ArrayList<>(BATCH_SIZE);
+                while (batch.size() < BATCH_SIZE && pairs.hasNext()) {
+                    batch.add(pairs.next());
+                }
+                formattedBatches.add(CompletableFuture.supplyAsync(() -> {
+                    CsvLineBuffer lines = Objects.requireNonNullElseGet(freeBuffers.poll(),
+                            () -> new CsvLineBuffer(BUFFER_SIZE));
+                    batch.forEach(pair -> lines.appendLine(keyToCIAO.apply(pair.getKey()), pair.getValue()));
+                    return lines;
+                }, executor));
+                if (formattedBatches.size() >= 2 * threads) {
+                    writeBatch(channel, formattedBatches.poll(), freeBuffers);
+                }
+            }
+            while (!formattedBatches.isEmpty()) {
+                writeBatch(channel, formattedBatches.poll(), freeBuffers);
+            }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    private String createCsvLine(Pair<String, List<String>> item) {
-        return String.format("%s, %d\n", item.getKey(), item.getValue().size());
+    private void writeBatch(FileChannel channel, CompletableFuture<CsvLineBuffer> formattedBatch,
+                            Queue<CsvLineBuffer> freeBuffers) throws IOException {
+        CsvLineBuffer lines;
+        try {
+            lines = formattedBatch.join();
+        } catch (CompletionException e) {
+            // Rethrow the exception of the key conversion
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        lines.writeTo(channel);
+        lines.clear();
+        freeBuffers.add(lines);
     }
 }
@@ -2,54 +2,238 @@ package it.unipi.m598992.jobscheduler.instance;
 
 import it.unipi.m598992.auxfile.AJob;
 import it.unipi.m598992.jobscheduler.exception.EmitStrategyException;
+import it.unipi.m598992.jobscheduler.metrics.CacheStatistics;
 import it.unipi.m598992.jobscheduler.strategy.EmitStrategy;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
-import java.util.Scanner;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
  * Implementation of the EmitStrategy interface for reading documents from a user-specified directory.
+ * Optionally, the documents larger than a split size are divided in splits, each read by its own job,
+ * so that a single huge document can be processed by many workers.
+ * By default only the txt files directly contained in the directory are read; withRecursiveWalk() also visits its
+ * subdirectories, and withIncludePatterns()/withExcludePatterns() select the documents with glob patterns.
+ * The directory is asked to the user unless the input directories are given with withInputRoots().
  */
 public class CiaoWordDirectoryEmitter implements EmitStrategy<String, String> {
+    // Shared by all the emitted jobs
+    private final CacheStatistics keyCacheStatistics = new CacheStatistics();
+    private final long splitSize;
+    private int maxDepth = 1;
+    // When empty, the directory is read from the standard input
+    private final List<Path> inputRoots = new ArrayList<>();
+    private final List<PathMatcher> includeMatchers = new ArrayList<>();
+    private final List<PathMatcher> excludeMatchers = new ArrayList<>();
 
     /**
-     * Visits the directory requested by user and creates a new job for each txt file in that directory.
+     * Creates the emitter that reads each document with a single job.
+     */
+    public CiaoWordDirectoryEmitter() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param splitSize The maximum number of bytes read by a job: larger documents are divided in splits.
+     */
+    public CiaoWordDirectoryEmitter(long splitSize) {
+        if (splitSize <= 0) {
+            throw new IllegalArgumentException("The split size must be positive: " + splitSize);
+        }
+        this.splitSize = splitSize;
+    }
+
+    /**
+     * Reads the documents of the given directories instead of asking the user for a directory, so that the emitter
+     * can be used by a program (see CiaoJobRunner).
+     *
+     * @param roots The directories to visit, in order.
+     * @return This emitter.
+     */
+    public CiaoWordDirectoryEmitter withInputRoots(List<Path> roots) {
+        inputRoots.addAll(roots);
+        return this;
+    }
+
+    /**
+     * Also visits the subdirectories of the directory requested by user, down to the given depth.
+     *
+     * @param maxDepth The maximum number of directory levels visited: 1 (the default) visits only the files directly
+     *                 contained in the directory, Integer.MAX_VALUE visits the whole tree.
+     * @return This emitter.
+     */
+    public CiaoWordDirectoryEmitter withRecursiveWalk(int maxDepth) {
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException("The maximum depth must be positive: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Reads only the documents whose path, relative to the directory requested by user, matches at least one of the
+     * given glob patterns (e.g. "**&#47;*.txt" or "books/*.md"). Without include patterns, the txt files are read.
+     *
+     * @param globs The glob patterns, with the syntax of FileSystem.getPathMatcher().
+     * @return This emitter.
+     */
+    public CiaoWordDirectoryEmitter withIncludePatterns(String... globs) {
+        includeMatchers.addAll(toMatchers(globs));
+        return this;
+    }
+
+    /**
+     * Skips the documents whose path, relative to the directory requested by user, matches at least one of the
+     * given glob patterns, even if they match an include pattern.
+     *
+     * @param globs The glob patterns, with the syntax of FileSystem.getPathMatcher().
+     * @return This emitter.
+     */
+    public CiaoWordDirectoryEmitter withExcludePatterns(String... globs) {
+        excludeMatchers.addAll(toMatchers(globs));
+        return this;
+    }
+
+    /**
+     * Visits the directory requested by user and creates a new job for each txt file (or split of it)
+     * in that directory.
      *
      * @return A stream of AJob instances, each representing a document processing job.
      * @throws EmitStrategyException If there's an issue with reading the directory or creating jobs.
      */
     @Override
     public Stream<AJob<String, String>> emit() {
-        String directoryPath = readFilePathFromUser();
-        List<Path> allPath = getAllPathFromDir(directoryPath);
-        // for each element of the directory, if it is a txt file, the corresponding
-        // Job will be created
-        return allPath.stream()
-                .filter(this::isTxtFile)
-                .map(path -> new CiaoWordReaderJob(path.toAbsolutePath()));
-    }
-
-    private List<Path> getAllPathFromDir(String directoryPath) {
-        // it is necessary to first collect all paths in a list and not work with the original source,
-        // because at the end of the try block the source (Files.list()) will be closed and we will receive an exception
-        try (Stream<Path> pathStream = Files.list(Paths.get(directoryPath))) {
-            return pathStream.toList();
+        // for each split of the txt files of the directory the corresponding Job will be created
+        return findSplits()
+                .map(split -> new CiaoWordReaderJob(split, keyCacheStatistics));
+    }
+
+    /**
+     * Visits the directory requested by user and divides its txt files in splits of at most splitSize bytes.
+     *
+     * @return A stream of the splits, in file order and, for each file, in offset order.
+     * @throws EmitStrategyException If there's an issue with reading the directory.
+     */
+    public Stream<FileSplit> findSplits() {
+        return findTxtFiles().flatMap(this::splitsOf);
+    }
+
+    /**
+     * Visits the directory requested by user (or the input directories) and returns the absolute paths of the
+     * selected documents (by default the txt files in that directory).
+     * The directory tree is walked lazily, so the first documents are returned (and their jobs can be started)
+     * before the walk is over: the returned stream must be closed to release the directories being visited.
+     *
+     * @return A stream of the paths of the documents.
+     * @throws EmitStrategyException If there's an issue with reading the directory.
+     */
+    public Stream<Path> findTxtFiles() {
+        List<Path> roots = inputRoots.isEmpty() ? List.of(Paths.get(readFilePathFromUser())) : inputRoots;
+        // each directory is visited only when the documents of the previous one have been consumed
+        return roots.stream()
+                .map(Path::toAbsolutePath)
+                .flatMap(this::walk);
+    }
+
+    /**
+     * @return The hits and misses of the word -> 'CIAO' key caches of all the jobs emitted, recorded when their
+     * execution ends.
+     */
+    public CacheStatistics getKeyCacheStatistics() {
+        return keyCacheStatistics;
+    }
+
+    private Stream<FileSplit> splitsOf(Path path) {
+        long size = getSize(path);
+        if (size <= splitSize) {
+            return Stream.of(FileSplit.wholeFile(path));
+        }
+        long numberOfSplits = (size + splitSize - 1) / splitSize;
+        // the last split is open-ended, so it reads until the end of the file even if it has grown
+        return LongStream.range(0, numberOfSplits).mapToObj(i -> new FileSplit(path, i * splitSize,
+                i == numberOfSplits - 1 ? Long.MAX_VALUE : (i + 1) * splitSize));
+    }
+
+    private long getSize(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new EmitStrategyException(e);
+        }
+    }
+
+    private Stream<Path> walk(Path root) {
+        Stream<Path> pathStream;
+        try {
+            // the source is not collected in a list: the caller consumes the files while the tree is being visited
+            // and closes the stream (and so the directories still open) at the end
+            pathStream = Files.find(root, maxDepth, (path, attributes) -> isSelected(root, path, attributes));
         } catch (IOException e) {
             throw new EmitStrategyException(e);
         }
+        // an error raised while visiting the tree is reported as an error on the root directory
+        Spliterator<Path> paths = pathStream.spliterator();
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<Path>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Path> action) {
+                try {
+                    return paths.tryAdvance(action);
+                } catch (UncheckedIOException e) {
+                    throw new EmitStrategyException(e.getCause());
+                }
+            }
+        }, false).onClose(pathStream::close);
+    }
+
+    private boolean isSelected(Path root, Path path, BasicFileAttributes attributes) {
+        // the links are not followed by the visit, but a link to a regular file is read like the file itself
+        if (!attributes.isRegularFile() && !(attributes.isSymbolicLink() && Files.isRegularFile(path))) {
+            return false;
+        }
+        // the patterns are matched against the path relative to the directory requested by user
+        Path relativePath = root.relativize(path);
+        if (excludeMatchers.stream().anyMatch(matcher -> matcher.matches(relativePath))) {
+            return false;
+        }
+        return includeMatchers.isEmpty()
+                ? isTxtFile(path)
+                : includeMatchers.stream().anyMatch(matcher -> matcher.matches(relativePath));
+    }
+
+    /**
+     * @param pathElement The path of a file.
+     * @return Whether the file is a txt file, whatever the case of its extension: the documents read by default.
+     */
+    static boolean isTxtFile(Path pathElement) {
+        //check if its extension is txt
+        return pathElement.toString().toLowerCase().endsWith(".txt");
     }
 
-    private boolean isTxtFile(Path pathElement) {
-        //check if it is a regular file and its extension is txt
-        return Files.isRegularFile(pathElement) &&
-                pathElement.toString().toLowerCase().endsWith(".txt");
+    private static List<PathMatcher> toMatchers(String... globs) {
+        FileSystem fileSystem = FileSystems.getDefault();
+        List<PathMatcher> matchers = new ArrayList<>(globs.length);
+        for (String glob : globs) {
+            matchers.add(fileSystem.getPathMatcher("glob:" + glob));
+        }
+        return matchers;
     }
 
 
@@ -2,49 +2,125 @@ package it.unipi.m598992.jobscheduler.instance;
 
 import it.unipi.m598992.auxfile.AJob;
 import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.codec.Codec;
 import it.unipi.m598992.jobscheduler.exception.JobException;
+import it.unipi.m598992.jobscheduler.metrics.CacheStatistics;
+import it.unipi.m598992.jobscheduler.metrics.InputMetrics;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
- * Implementation of a job for reading a file and returning pairs of the form (ciao(w), w)
+ * Implementation of a job for reading a file, or a split of it, and returning pairs of the form (ciao(w), w)
  */
-public class CiaoWordReaderJob extends AJob<String, String> {
-    private final Path path;
+public class CiaoWordReaderJob extends AJob<String, String> implements InputMetrics {
+    // Number of slots of the word -> 'CIAO' key cache used by each execution
+    private static final int KEY_CACHE_CAPACITY = 1 << 14;
+
+    private final FileSplit split;
+    private final CacheStatistics keyCacheStatistics;
+    // Recorded when the stream of the job is closed
+    private volatile long bytesRead;
+    private volatile long tokensRead;
+
+    /**
+     * @param split              The split of the file to read.
+     * @param keyCacheStatistics The statistics in which the hits and misses of the word -> 'CIAO' key cache are
+     *                           recorded when the stream of the job is closed.
+     */
+    public CiaoWordReaderJob(FileSplit split, CacheStatistics keyCacheStatistics) {
+        this.split = split;
+        this.keyCacheStatistics = keyCacheStatistics;
+    }
+
+    public CiaoWordReaderJob(Path path, CacheStatistics keyCacheStatistics) {
+        this(FileSplit.wholeFile(path), keyCacheStatistics);
+    }
 
     public CiaoWordReaderJob(Path path) {
-        this.path = path;
+        this(path, new CacheStatistics());
     }
 
     public CiaoWordReaderJob(String filename) {
-        this.path = Path.of(filename);
+        this(Path.of(filename));
     }
 
     /**
-     * Reads the file and returns a stream containing all pairs of the form (ciao(w), w)
+     * Codec of the jobs sent to the JobWorkers by the distributed mode: a job is described by its split, so the
+     * workers must be able to read the same paths (e.g. they run on the same machine, or share the file system).
+     *
+     * @return The codec of the CiaoWordReaderJobs.
+     */
+    public static Codec<AJob<String, String>> codec() {
+        Codec<String> pathCodec = Codec.utf8();
+        return new Codec<>() {
+            @Override
+            public void write(DataOutput out, AJob<String, String> job) throws IOException {
+                FileSplit split = ((CiaoWordReaderJob) job).getSplit();
+                pathCodec.write(out, split.getPath().toString());
+                out.writeLong(split.getStart());
+                out.writeLong(split.getEnd());
+            }
+
+            @Override
+            public AJob<String, String> read(DataInput in) throws IOException {
+                return new CiaoWordReaderJob(new FileSplit(Path.of(pathCodec.read(in)), in.readLong(), in.readLong()),
+                        new CacheStatistics());
+            }
+        };
+    }
+
+    /**
+     * @return The split of the file read by the job.
+     */
+    public FileSplit getSplit() {
+        return split;
+    }
+
+    /**
+     * Reads the split of the file and returns a stream containing all pairs of the form (ciao(w), w).
+     * The file is scanned lazily by a CiaoWordTokenizer while the stream is consumed, so the memory used doesn't
+     * depend on the size of the file. The file is released as soon as the stream is exhausted or closed: the
+     * stream must be closed if it is not fully consumed.
      *
      * @return A stream of pairs representing the 'CIAO' word form and the original word.
      * @throws JobException If there's an issue with reading the file or processing its contents.
      */
     @Override
     public Stream<Pair<String, String>> execute() {
-        // Read file line by line
-        return getLinesFromFile().stream()
-                // Remove all punctuation marks by replacing them with a space
-                .map(line -> line.replaceAll("[^\\sa-zA-Z0-9]", " "))
-                // Retrieve all words in a line by splitting it by space
-                // Use flatMap to flatten Stream<Stream>> to Stream
-                .flatMap(line -> Arrays.stream(line.split(" ")))
-                // Filter only the words that are requested
-                .filter(this::shouldIncludeWord)
-                // Map each word to a Pair with its modified form (toCIAO(word))
-                .map(word -> new Pair<>(toCIAO(word), word));
+        CiaoWordTokenizer tokenizer = openTokenizer();
+        CiaoKeyCache keyCache = new CiaoKeyCache(KEY_CACHE_CAPACITY);
+        return StreamSupport.stream(new CiaoPairSpliterator(tokenizer, keyCache), false)
+                .onClose(() -> {
+                    keyCacheStatistics.record(keyCache.getHits(), keyCache.getMisses());
+                    bytesRead = tokenizer.bytesScanned();
+                    tokensRead = tokenizer.tokensScanned();
+                    closeTokenizer(tokenizer);
+                });
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public long getTokensRead() {
+        return tokensRead;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " " + split;
     }
 
     /**
@@ -54,29 +130,78 @@ public class CiaoWordReaderJob extends AJob<String, String> {
      * @return The 'CIAO' representation of the input word.
      */
     protected String toCIAO(String word){
+        return keyOf(word);
+    }
+
+    /**
+     * Transforms a word to its 'CIAO' form, i.e. the key under which the jobs count it (e.g. to look up its anagrams).
+     *
+     * @param word The input word to be transformed.
+     * @return The 'CIAO' representation of the input word.
+     */
+    public static String keyOf(String word) {
+        if (isOnlyAsciiLetters(word)) {
+            // Fast path: counting sort over the 26 letters
+            return CiaoKeyCache.toCIAO(word.toCharArray(), word.length());
+        }
         // Lexicographically sort the characters in lowercase
         return sortLexicographically(word.toLowerCase());
     }
 
-    private String sortLexicographically(String input) {
+    private static boolean isOnlyAsciiLetters(String word) {
+        return word.chars().allMatch(c -> (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'));
+    }
+
+    private static String sortLexicographically(String input) {
         char[] charArray = input.toCharArray();
         Arrays.sort(charArray);
         return new String(charArray);
     }
 
-    private List<String> getLinesFromFile() {
+    private CiaoWordTokenizer openTokenizer() {
         try {
-            return Files.readAllLines(path);
+            return new CiaoWordTokenizer(split.getPath(), split.getStart(), split.getEnd());
         } catch (IOException e) {
             throw new JobException(e);
         }
     }
 
-    private boolean shouldIncludeWord(String word) {
-        return word.length() >= 4 && containsOnlyLetters(word);
+    private void closeTokenizer(CiaoWordTokenizer tokenizer) {
+        try {
+            tokenizer.close();
+        } catch (IOException e) {
+            throw new JobException(e);
+        }
     }
 
-    private boolean containsOnlyLetters(String input) {
-        return input.chars().allMatch(Character::isLetter);
+    /**
+     * Produces a pair for each word found by the tokenizer. The word and its 'CIAO' form are taken from the
+     * key cache, so a word already seen only allocates the pair.
+     */
+    private static class CiaoPairSpliterator extends Spliterators.AbstractSpliterator<Pair<String, String>> {
+        private final CiaoWordTokenizer tokenizer;
+        private final CiaoKeyCache keyCache;
+
+        private CiaoPairSpliterator(CiaoWordTokenizer tokenizer, CiaoKeyCache keyCache) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.tokenizer = tokenizer;
+            this.keyCache = keyCache;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Pair<String, String>> action) {
+            try {
+                if (!tokenizer.nextWord()) {
+                    // Release the file without waiting for the stream to be closed
+                    tokenizer.close();
+                    return false;
+                }
+            } catch (IOException e) {
+                throw new JobException(e);
+            }
+            int slot = keyCache.lookup(tokenizer.word(), tokenizer.wordLength());
+            action.accept(new Pair<>(keyCache.key(slot), keyCache.word(slot)));
+            return true;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,238 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Tokenizer that scans the bytes of a text file, memory-mapped through a FileChannel, and extracts the words
+ * considered by the 'CIAO' jobs without using regex and without allocating a String per token.
+ * It applies the same rules of the original line-based implementation (replace every character that is not
+ * whitespace, a letter or a digit with a space, split by space, keep the tokens made only of at least 4 letters):
+ * <ul>
+ *     <li>ASCII letters are part of a word;</li>
+ *     <li>digits, tabs, vertical tabs and form feeds are part of a token, but the token is discarded;</li>
+ *     <li>every other byte (spaces, line terminators, punctuation marks, bytes of multi-byte UTF-8 characters)
+ *     separates two tokens.</li>
+ * </ul>
+ * The current word is kept in a reusable char buffer, valid until the next call of nextWord().
+ * The file is mapped one window at a time, so the memory used by a tokenizer is bounded whatever the size of the
+ * file, and a word crossing the border between two windows is handled as any other word.
+ * A tokenizer can also scan only a byte range (split) of the file: it returns the words that start in the range,
+ * including the last one even if it ends after the range, and skips the word that started before the range.
+ * So the splits of a file return, all together, exactly the words of the whole file.
+ */
+final class CiaoWordTokenizer implements Closeable {
+    private static final int MIN_WORD_LENGTH = 4;
+    // Default size of the region of the file mapped in memory at once
+    private static final int DEFAULT_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    private static final byte SEPARATOR = 0;
+    private static final byte LETTER = 1;
+    private static final byte DISCARDING = 2;
+    // Class of each byte value
+    private static final byte[] BYTE_CLASSES = new byte[256];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            BYTE_CLASSES[c] = LETTER;
+            BYTE_CLASSES[Character.toUpperCase(c)] = LETTER;
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            BYTE_CLASSES[c] = DISCARDING;
+        }
+        BYTE_CLASSES['\t'] = DISCARDING;
+        BYTE_CLASSES[0x0B] = DISCARDING;
+        BYTE_CLASSES['\f'] = DISCARDING;
+    }
+
+    private final FileChannel channel;
+    private final int windowSize;
+    private final long fileSize;
+    private final long splitEnd;
+    private long windowStart;
+    private long nextWindowStart;
+    private MappedByteBuffer window;
+    // Whether the split starts in the middle of a token, which belongs to the previous split
+    private boolean startsInsideToken;
+    private char[] word = new char[32];
+    private int wordLength;
+    // Bytes of the windows already released, and tokens terminated, including the discarded ones
+    private long bytesScanned;
+    private long tokensScanned;
+
+    CiaoWordTokenizer(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param path       The file to scan.
+     * @param windowSize The size in bytes of the region of the file mapped in memory at once.
+     */
+    CiaoWordTokenizer(Path path, int windowSize) throws IOException {
+        this(path, 0, Long.MAX_VALUE, windowSize);
+    }
+
+    /**
+     * @param path       The file to scan.
+     * @param splitStart The offset of the first byte of the split.
+     * @param splitEnd   The offset following the last byte of the split.
+     */
+    CiaoWordTokenizer(Path path, long splitStart, long splitEnd) throws IOException {
+        this(path, splitStart, splitEnd, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param path       The file to scan.
+     * @param splitStart The offset of the first byte of the split.
+     * @param splitEnd   The offset following the last byte of the split.
+     * @param windowSize The size in bytes of the region of the file mapped in memory at once.
+     */
+    CiaoWordTokenizer(Path path, long splitStart, long splitEnd, int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("The window size must be positive: " + windowSize);
+        }
+        if (splitStart < 0 || splitEnd < splitStart) {
+            throw new IllegalArgumentException("Invalid split: [" + splitStart + ", " + splitEnd + ")");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.windowSize = windowSize;
+        this.fileSize = channel.size();
+        this.splitEnd = splitEnd;
+        this.nextWindowStart = splitStart;
+        if (splitStart > 0 && splitStart < fileSize) {
+            try {
+                this.startsInsideToken = BYTE_CLASSES[readByte(splitStart - 1) & 0xFF] != SEPARATOR;
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next word of the file.
+     *
+     * @return true if a word has been found, false if the end of the file has been reached.
+     * @throws IOException If there's an issue with mapping the file.
+     */
+    boolean nextWord() throws IOException {
+        int length = 0;
+        // The token that started in the previous split is read as a discarded one
+        boolean discarded = startsInsideToken;
+        startsInsideToken = false;
+        while (true) {
+            if ((window == null || !window.hasRemaining()) && !mapNextWindow()) {
+                // End of file: the last token is terminated by it
+                return acceptWord(length, discarded);
+            }
+            byte b = window.get();
+            byte byteClass = BYTE_CLASSES[b & 0xFF];
+            if (byteClass != SEPARATOR && length == 0 && !discarded
+                    && windowStart + window.position() - 1 >= splitEnd) {
+                // A token starting after the split belongs to the next split
+                close();
+                return false;
+            }
+            switch (byteClass) {
+                case LETTER -> {
+                    // The letters of a discarded token are useless
+                    if (!discarded) {
+                        if (length == word.length) {
+                            word = Arrays.copyOf(word, length * 2);
+                        }
+                        word[length++] = (char) b;
+                    }
+                }
+                case DISCARDING -> discarded = true;
+                default -> {
+                    if (acceptWord(length, discarded)) {
+                        return true;
+                    }
+                    length = 0;
+                    discarded = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The buffer containing the letters of the current word, from index 0 to wordLength() (exclusive).
+     */
+    char[] word() {
+        return word;
+    }
+
+    int wordLength() {
+        return wordLength;
+    }
+
+    /**
+     * @return The number of bytes of the file scanned so far.
+     */
+    long bytesScanned() {
+        return bytesScanned + (window == null ? 0 : window.position());
+    }
+
+    /**
+     * @return The number of tokens found so far, including the discarded ones and the words too short.
+     */
+    long tokensScanned() {
+        return tokensScanned;
+    }
+
+    /**
+     * Closes the file. The tokenizer can be closed more than once.
+     */
+    @Override
+    public void close() throws IOException {
+        // The current window is released too, so that it can be unmapped by the garbage collector
+        releaseWindow();
+        channel.close();
+    }
+
+    private boolean acceptWord(int length, boolean discarded) {
+        if (length > 0 || discarded) {
+            tokensScanned++;
+        }
+        if (discarded || length < MIN_WORD_LENGTH) {
+            return false;
+        }
+        wordLength = length;
+        return true;
+    }
+
+    private boolean mapNextWindow() throws IOException {
+        // After close() the tokenizer behaves as if the end of the file has been reached
+        if (nextWindowStart >= fileSize || !channel.isOpen()) {
+            return false;
+        }
+        long size = Math.min(windowSize, fileSize - nextWindowStart);
+        releaseWindow();
+        window = channel.map(FileChannel.MapMode.READ_ONLY, nextWindowStart, size);
+        windowStart = nextWindowStart;
+        nextWindowStart += size;
+        return true;
+    }
+
+    private void releaseWindow() {
+        if (window != null) {
+            bytesScanned += window.position();
+            window = null;
+        }
+    }
+
+    private byte readByte(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        if (channel.read(buffer, position) != 1) {
+            throw new EOFException("Cannot read the byte at offset " + position);
+        }
+        return buffer.get(0);
+    }
+}
@@ -0,0 +1,127 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Buffer of csv lines "key, number", encoded directly in UTF-8 into a reusable byte array: the numbers are formatted
+ * digit by digit and the keys without intermediate byte arrays, so no garbage is produced per line.
+ */
+final class CsvLineBuffer {
+    private static final byte[] SEPARATOR = {',', ' '};
+    // The digits of the largest long, and its sign
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private byte[] bytes;
+    private int size;
+
+    /**
+     * @param capacity The initial capacity in bytes; the buffer grows when a line doesn't fit.
+     */
+    CsvLineBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * Appends the line "key, value\n", where the value is written as an integer.
+     */
+    void appendLine(String key, Number value) {
+        appendUtf8(key);
+        ensureCapacity(SEPARATOR.length + MAX_LONG_LENGTH + 1);
+        bytes[size++] = SEPARATOR[0];
+        bytes[size++] = SEPARATOR[1];
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            appendLong(value.longValue());
+        } else if (value instanceof BigInteger) {
+            appendUtf8(value.toString());
+            ensureCapacity(1);
+        } else {
+            throw new IllegalArgumentException("Not an integer: " + value);
+        }
+        bytes[size++] = '\n';
+    }
+
+    /**
+     * @return The number of bytes in the buffer.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes the content of the buffer at the current position of the channel.
+     */
+    void writeTo(FileChannel channel) throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(bytes, 0, size);
+        while (content.hasRemaining()) {
+            channel.write(content);
+        }
+    }
+
+    /**
+     * Empties the buffer, keeping its capacity.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            // Its absolute value isn't a long
+            appendUtf8(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            bytes[size++] = '-';
+            value = -value;
+        }
+        int length = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            length++;
+        }
+        // The digits are written from the last one
+        for (int i = size + length - 1; i >= size; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += length;
+    }
+
+    private void appendUtf8(String string) {
+        int length = string.length();
+        // 3 bytes per char at most, since the supplementary characters take 2 chars and 4 bytes
+        ensureCapacity(3 * length);
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | c >> 6);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                bytes[size++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: replaced as String.getBytes() does
+                bytes[size++] = '?';
+            } else {
+                bytes[size++] = (byte) (0xE0 | c >> 12);
+                bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (size + additionalBytes > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + additionalBytes));
+        }
+    }
+}
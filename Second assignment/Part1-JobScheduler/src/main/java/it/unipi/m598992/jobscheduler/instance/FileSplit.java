@@ -0,0 +1,48 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import java.nio.file.Path;
+
+/**
+ * Byte range of a file processed by a single job. The borders of a split don't need to be on word boundaries:
+ * the words crossing them are assigned to the split in which they start (see CiaoWordTokenizer).
+ */
+public final class FileSplit {
+    private final Path path;
+    private final long start;
+    private final long end;
+
+    /**
+     * @param path  The file.
+     * @param start The offset of the first byte of the split.
+     * @param end   The offset following the last byte of the split.
+     */
+    public FileSplit(Path path, long start, long end) {
+        this.path = path;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return The split covering the whole file.
+     */
+    public static FileSplit wholeFile(Path path) {
+        return new FileSplit(path, 0, Long.MAX_VALUE);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return path + (end == Long.MAX_VALUE && start == 0 ? "" : "[" + start + ", " + end + ")");
+    }
+}
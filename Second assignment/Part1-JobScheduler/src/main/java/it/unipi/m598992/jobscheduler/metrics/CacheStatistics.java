@@ -0,0 +1,38 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters of the hits and misses of a cache, shared by all the jobs using it.
+ */
+public final class CacheStatistics {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public void record(long hits, long misses) {
+        this.hits.add(hits);
+        this.misses.add(misses);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The fraction of lookups that were hits, or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long hitCount = getHits();
+        long lookups = hitCount + getMisses();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits: %d, misses: %d, hit rate: %.2f%%", getHits(), getMisses(), getHitRate() * 100);
+    }
+}
@@ -0,0 +1,18 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+/**
+ * Implemented by the jobs that can report how much of their input they have read. The values are final once the
+ * stream of the job has been closed.
+ */
+public interface InputMetrics {
+
+    /**
+     * @return The number of bytes of the input scanned by the job.
+     */
+    long getBytesRead();
+
+    /**
+     * @return The number of tokens found in the input, including the ones discarded.
+     */
+    long getTokensRead();
+}
@@ -0,0 +1,136 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Publishes the metrics of the runs as JDK Flight Recorder events (category "JobScheduler"), so that they are
+ * recorded together with the rest of the profile of the JVM, e.g. with -XX:StartFlightRecording.
+ * The events cost almost nothing when no recording is active. Every JobScheduler uses this listener.
+ */
+public class JfrMetricsListener implements MetricsListener {
+
+    @Override
+    public void jobCompleted(JobMetrics jobMetrics) {
+        JobEvent event = new JobEvent();
+        if (event.isEnabled()) {
+            event.job = jobMetrics.getJob();
+            event.wallTime = jobMetrics.getWallTime().toNanos();
+            event.cpuTime = jobMetrics.getCpuTime().toNanos();
+            event.allocatedBytes = jobMetrics.getAllocatedBytes();
+            event.pairs = jobMetrics.getPairs();
+            event.bytesRead = jobMetrics.getBytesRead();
+            event.tokensRead = jobMetrics.getTokensRead();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void phaseCompleted(PhaseMetrics phaseMetrics) {
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phaseMetrics.getPhase().name();
+            event.wallTime = phaseMetrics.getWallTime().toNanos();
+            event.cpuTime = phaseMetrics.getCpuTime().toNanos();
+            event.allocatedBytes = phaseMetrics.getAllocatedBytes();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void runCompleted(RunMetrics runMetrics) {
+        RunEvent event = new RunEvent();
+        if (event.isEnabled()) {
+            event.wallTime = runMetrics.getWallTime().toNanos();
+            event.jobs = runMetrics.getJobs();
+            event.pairs = runMetrics.getPairs();
+            event.bytesRead = runMetrics.getBytesRead();
+            event.tokensRead = runMetrics.getTokensRead();
+            event.distinctKeys = runMetrics.getDistinctKeys();
+            event.peakGroupSize = runMetrics.getPeakGroupSize();
+            event.gcCount = runMetrics.getGcCount();
+            event.gcTime = runMetrics.getGcTime().toNanos();
+            event.allocatedBytes = runMetrics.getAllocatedBytes();
+            event.commit();
+        }
+    }
+
+    @Name("it.unipi.m598992.jobscheduler.Job")
+    @Label("Job")
+    @Category("JobScheduler")
+    @Description("Execution of a job")
+    static class JobEvent extends Event {
+        @Label("Job")
+        String job;
+        @Label("Wall Time")
+        @Timespan
+        long wallTime;
+        @Label("CPU Time")
+        @Timespan
+        long cpuTime;
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+        @Label("Pairs")
+        long pairs;
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+        @Label("Tokens Read")
+        long tokensRead;
+    }
+
+    @Name("it.unipi.m598992.jobscheduler.Phase")
+    @Label("Phase")
+    @Category("JobScheduler")
+    @Description("Resources used by a phase of a run, summed over its threads")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Wall Time")
+        @Timespan
+        long wallTime;
+        @Label("CPU Time")
+        @Timespan
+        long cpuTime;
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+
+    @Name("it.unipi.m598992.jobscheduler.Run")
+    @Label("Run")
+    @Category("JobScheduler")
+    @Description("Summary of a run")
+    static class RunEvent extends Event {
+        @Label("Wall Time")
+        @Timespan
+        long wallTime;
+        @Label("Jobs")
+        long jobs;
+        @Label("Pairs")
+        long pairs;
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+        @Label("Tokens Read")
+        long tokensRead;
+        @Label("Distinct Keys")
+        long distinctKeys;
+        @Label("Peak Group Size")
+        long peakGroupSize;
+        @Label("GC Count")
+        long gcCount;
+        @Label("GC Time")
+        @Timespan
+        long gcTime;
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+}
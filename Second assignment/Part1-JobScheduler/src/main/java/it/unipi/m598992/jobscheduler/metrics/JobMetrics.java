@@ -0,0 +1,71 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+import java.time.Duration;
+
+/**
+ * Resources used by the execution of a job. When the jobs are executed sequentially their pairs are accumulated
+ * while they are produced, so the accumulation is included.
+ */
+public final class JobMetrics {
+    private final String job;
+    private final Duration wallTime;
+    private final Duration cpuTime;
+    private final long allocatedBytes;
+    private final long pairs;
+    private final long bytesRead;
+    private final long tokensRead;
+
+    /**
+     * @param job            The description of the job (its toString()).
+     * @param wallTime       The time taken by the job.
+     * @param cpuTime        The CPU time used by the job (0 if it is not measurable).
+     * @param allocatedBytes The memory allocated by the job (0 if it is not measurable).
+     * @param pairs          The number of pairs emitted by the job.
+     * @param bytesRead      The number of bytes read by the job (0 if it doesn't implement InputMetrics).
+     * @param tokensRead     The number of tokens read by the job (0 if it doesn't implement InputMetrics).
+     */
+    public JobMetrics(String job, Duration wallTime, Duration cpuTime, long allocatedBytes, long pairs,
+                      long bytesRead, long tokensRead) {
+        this.job = job;
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+        this.allocatedBytes = allocatedBytes;
+        this.pairs = pairs;
+        this.bytesRead = bytesRead;
+        this.tokensRead = tokensRead;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    public Duration getWallTime() {
+        return wallTime;
+    }
+
+    public Duration getCpuTime() {
+        return cpuTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getPairs() {
+        return pairs;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getTokensRead() {
+        return tokensRead;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: wall: %d ms, cpu: %d ms, allocated: %d bytes, pairs: %d, bytes: %d, tokens: %d",
+                job, wallTime.toMillis(), cpuTime.toMillis(), allocatedBytes, pairs, bytesRead, tokensRead);
+    }
+}
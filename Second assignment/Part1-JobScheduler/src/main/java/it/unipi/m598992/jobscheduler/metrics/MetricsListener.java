@@ -0,0 +1,32 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+/**
+ * Receives the metrics of the runs of a JobScheduler (see JobScheduler.withMetricsListener()).
+ * The methods are invoked by the threads of the run, possibly concurrently, so they must be thread-safe and fast.
+ */
+public interface MetricsListener {
+
+    /**
+     * Invoked when a job has been executed.
+     *
+     * @param jobMetrics The resources used by the job.
+     */
+    default void jobCompleted(JobMetrics jobMetrics) {
+    }
+
+    /**
+     * Invoked for each phase at the end of a successful run, before runCompleted().
+     *
+     * @param phaseMetrics The resources used by the phase.
+     */
+    default void phaseCompleted(PhaseMetrics phaseMetrics) {
+    }
+
+    /**
+     * Invoked at the end of a successful run.
+     *
+     * @param runMetrics The resources used by the run.
+     */
+    default void runCompleted(RunMetrics runMetrics) {
+    }
+}
@@ -0,0 +1,23 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+/**
+ * The phases of a run of the JobScheduler.
+ */
+public enum Phase {
+    /**
+     * Creation of the jobs by the emit strategy (e.g. visit of the directories).
+     */
+    EMIT,
+    /**
+     * Execution of the jobs and, when the jobs are executed sequentially, accumulation of their pairs.
+     */
+    COMPUTE,
+    /**
+     * Combination of the partial aggregations of the jobs into the collect buffers.
+     */
+    COLLECT,
+    /**
+     * Consumption of the aggregated pairs by the output strategy.
+     */
+    OUTPUT
+}
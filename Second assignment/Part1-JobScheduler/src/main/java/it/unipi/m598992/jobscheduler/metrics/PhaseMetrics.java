@@ -0,0 +1,49 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+import java.time.Duration;
+
+/**
+ * Resources used by a phase of a run of the JobScheduler. The phases of a parallel run overlap and are executed by
+ * many threads, so the times are summed over the threads working on the phase and can exceed the time of the run.
+ */
+public final class PhaseMetrics {
+    private final Phase phase;
+    private final Duration wallTime;
+    private final Duration cpuTime;
+    private final long allocatedBytes;
+
+    /**
+     * @param phase          The phase.
+     * @param wallTime       The time spent by the threads working on the phase.
+     * @param cpuTime        The CPU time used by the threads working on the phase (0 if it is not measurable).
+     * @param allocatedBytes The memory allocated by the threads working on the phase (0 if it is not measurable).
+     */
+    public PhaseMetrics(Phase phase, Duration wallTime, Duration cpuTime, long allocatedBytes) {
+        this.phase = phase;
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public Duration getWallTime() {
+        return wallTime;
+    }
+
+    public Duration getCpuTime() {
+        return cpuTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: wall: %d ms, cpu: %d ms, allocated: %d bytes",
+                phase, wallTime.toMillis(), cpuTime.toMillis(), allocatedBytes);
+    }
+}
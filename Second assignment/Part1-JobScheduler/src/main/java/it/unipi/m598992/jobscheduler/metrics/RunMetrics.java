@@ -0,0 +1,109 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Resources used by a whole run of the JobScheduler.
+ */
+public final class RunMetrics {
+    private final Duration wallTime;
+    private final List<PhaseMetrics> phases;
+    private final long jobs;
+    private final long pairs;
+    private final long bytesRead;
+    private final long tokensRead;
+    private final long distinctKeys;
+    private final long peakGroupSize;
+    private final long gcCount;
+    private final Duration gcTime;
+
+    /**
+     * @param wallTime      The time taken by the run.
+     * @param phases        The resources used by each phase, in the order of the Phase constants.
+     * @param jobs          The number of jobs executed.
+     * @param pairs         The number of pairs emitted by the jobs.
+     * @param bytesRead     The number of bytes read by the jobs implementing InputMetrics.
+     * @param tokensRead    The number of tokens read by the jobs implementing InputMetrics.
+     * @param distinctKeys  The number of keys passed to the output strategy.
+     * @param peakGroupSize The largest number of values of a key, for accumulators that are numbers (counts) or
+     *                      collections (lists of values); 0 for other accumulators.
+     * @param gcCount       The number of garbage collections that happened during the run.
+     * @param gcTime        The time spent in the garbage collections that happened during the run.
+     */
+    public RunMetrics(Duration wallTime, List<PhaseMetrics> phases, long jobs, long pairs, long bytesRead,
+                      long tokensRead, long distinctKeys, long peakGroupSize, long gcCount, Duration gcTime) {
+        this.wallTime = wallTime;
+        this.phases = List.copyOf(phases);
+        this.jobs = jobs;
+        this.pairs = pairs;
+        this.bytesRead = bytesRead;
+        this.tokensRead = tokensRead;
+        this.distinctKeys = distinctKeys;
+        this.peakGroupSize = peakGroupSize;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+    }
+
+    public Duration getWallTime() {
+        return wallTime;
+    }
+
+    public List<PhaseMetrics> getPhases() {
+        return phases;
+    }
+
+    public PhaseMetrics getPhase(Phase phase) {
+        return phases.get(phase.ordinal());
+    }
+
+    public long getJobs() {
+        return jobs;
+    }
+
+    public long getPairs() {
+        return pairs;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getTokensRead() {
+        return tokensRead;
+    }
+
+    public long getDistinctKeys() {
+        return distinctKeys;
+    }
+
+    public long getPeakGroupSize() {
+        return peakGroupSize;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public Duration getGcTime() {
+        return gcTime;
+    }
+
+    /**
+     * @return The memory allocated by all the phases.
+     */
+    public long getAllocatedBytes() {
+        return phases.stream().mapToLong(PhaseMetrics::getAllocatedBytes).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder(String.format(
+                "wall: %d ms, jobs: %d, pairs: %d, bytes: %d, tokens: %d, distinct keys: %d, peak group size: %d, "
+                        + "gc: %d collections in %d ms, allocated: %d bytes",
+                wallTime.toMillis(), jobs, pairs, bytesRead, tokensRead, distinctKeys, peakGroupSize, gcCount,
+                gcTime.toMillis(), getAllocatedBytes()));
+        phases.forEach(phase -> description.append(System.lineSeparator()).append(phase));
+        return description.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package it.unipi.m598992.jobscheduler.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Thread-safe counters of a stage of the staged pipeline, updated by its workers while the pipeline is running.
+ * A stage is idle when its input queue is empty (the previous stage is too slow) and blocked when its output
+ * queue is full (the next stage is too slow: backpressure).
+ */
+public final class StageStatistics {
+    private final String stage;
+    private final int workers;
+    // Current number of items waiting in the input queue of the stage
+    private final IntSupplier queueDepth;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder idleNanos = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param stage      The name of the stage.
+     * @param workers    The number of workers of the stage.
+     * @param queueDepth The current number of items in the input queue of the stage (0 if it has none).
+     */
+    public StageStatistics(String stage, int workers, IntSupplier queueDepth) {
+        this.stage = stage;
+        this.workers = workers;
+        this.queueDepth = queueDepth;
+    }
+
+    public void recordItem() {
+        items.increment();
+    }
+
+    public void recordIdle(long nanos) {
+        idleNanos.add(nanos);
+    }
+
+    public void recordBlocked(long nanos) {
+        blockedNanos.add(nanos);
+    }
+
+    public void recordQueueDepth(int depth) {
+        maxQueueDepth.accumulate(depth);
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return The number of items processed by the workers of the stage, summed over the workers (an item received
+     * by many workers, as the partial aggregations by the collect workers, is counted once per worker).
+     */
+    public long getItems() {
+        return items.sum();
+    }
+
+    /**
+     * @return The time spent by the workers of the stage waiting for an input, summed over the workers.
+     */
+    public Duration getIdleTime() {
+        return Duration.ofNanos(idleNanos.sum());
+    }
+
+    /**
+     * @return The time spent by the workers of the stage waiting for room in the output queue, summed over the
+     * workers.
+     */
+    public Duration getBlockedTime() {
+        return Duration.ofNanos(blockedNanos.sum());
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: workers: %d, items: %d, idle: %d ms, blocked: %d ms, queue depth: %d (max %d)",
+                stage, workers, getItems(), getIdleTime().toMillis(), getBlockedTime().toMillis(),
+                getQueueDepth(), getMaxQueueDepth());
+    }
+}
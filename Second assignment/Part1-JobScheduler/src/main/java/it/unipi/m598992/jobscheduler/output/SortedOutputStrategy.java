@@ -0,0 +1,70 @@
+package it.unipi.m598992.jobscheduler.output;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Output strategy passing all the pairs of the collect phase to another output strategy, sorted in a given order
+ * (e.g. by key, or by number of anagrams).
+ * The pairs are gathered in an array, which references them without copying their accumulators, and sorted with
+ * a parallel sort on the common ForkJoinPool.
+ *
+ * @param <K> The type of the keys.
+ * @param <A> The type of the accumulators.
+ */
+public class SortedOutputStrategy<K, A> implements OutputStrategy<K, A> {
+    private final Comparator<? super Pair<K, A>> order;
+    private final OutputStrategy<K, A> downstream;
+
+    /**
+     * @param order      The order of the pairs.
+     * @param downstream The output strategy receiving the sorted pairs.
+     */
+    public SortedOutputStrategy(Comparator<? super Pair<K, A>> order, OutputStrategy<K, A> downstream) {
+        this.order = order;
+        this.downstream = downstream;
+    }
+
+    /**
+     * Creates the strategy passing on the pairs in the natural order of the keys.
+     *
+     * @param downstream The output strategy receiving the sorted pairs.
+     */
+    public static <K extends Comparable<? super K>, A> SortedOutputStrategy<K, A> byKey(
+            OutputStrategy<K, A> downstream) {
+        return new SortedOutputStrategy<>(Comparator.comparing(Pair::getKey), downstream);
+    }
+
+    /**
+     * Creates the strategy passing on the pairs from the largest count; the keys with the same count are in their
+     * natural order.
+     *
+     * @param count      The count of an accumulator (e.g. Long::longValue, or List::size for the lists of values).
+     * @param downstream The output strategy receiving the sorted pairs.
+     */
+    public static <K extends Comparable<? super K>, A> SortedOutputStrategy<K, A> byCount(
+            ToLongFunction<? super A> count, OutputStrategy<K, A> downstream) {
+        return new SortedOutputStrategy<>(countOrder(count), downstream);
+    }
+
+    /**
+     * @return The order from the largest count, and then by key.
+     */
+    static <K extends Comparable<? super K>, A> Comparator<Pair<K, A>> countOrder(ToLongFunction<? super A> count) {
+        Comparator<Pair<K, A>> byCount = Comparator.comparingLong(pair -> count.applyAsLong(pair.getValue()));
+        return byCount.reversed().thenComparing(Pair::getKey);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void output(Stream<Pair<K, A>> collectOutput) {
+        Pair<K, A>[] pairs = collectOutput.toArray(Pair[]::new);
+        Arrays.parallelSort(pairs, order);
+        downstream.output(Arrays.stream(pairs));
+    }
+}
@@ -0,0 +1,71 @@
+package it.unipi.m598992.jobscheduler.output;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Output strategy passing to another output strategy only the first k pairs of the collect phase in a given order
+ * (e.g. the k keys with the most anagrams), in that order.
+ * The pairs are selected with a heap of at most k pairs, whose root is the last pair selected so far: the other pairs
+ * are discarded as soon as they are read, so the full sort is never materialised, and the pairs are passed on as
+ * they are, without copying their accumulators.
+ *
+ * @param <K> The type of the keys.
+ * @param <A> The type of the accumulators.
+ */
+public class TopKOutputStrategy<K, A> implements OutputStrategy<K, A> {
+    private final int k;
+    private final Comparator<? super Pair<K, A>> order;
+    private final OutputStrategy<K, A> downstream;
+
+    /**
+     * @param k          The number of pairs passed on.
+     * @param order      The order of the pairs: the first k pairs are passed on.
+     * @param downstream The output strategy receiving the first k pairs.
+     */
+    public TopKOutputStrategy(int k, Comparator<? super Pair<K, A>> order, OutputStrategy<K, A> downstream) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("The number of pairs must be positive: " + k);
+        }
+        this.k = k;
+        this.order = order;
+        this.downstream = downstream;
+    }
+
+    /**
+     * Creates the strategy passing on the k keys with the largest counts, from the largest one; the keys with the
+     * same count are in their natural order.
+     *
+     * @param k          The number of keys passed on.
+     * @param count      The count of an accumulator (e.g. Long::longValue, or List::size for the lists of values).
+     * @param downstream The output strategy receiving the k keys.
+     */
+    public static <K extends Comparable<? super K>, A> TopKOutputStrategy<K, A> byCount(
+            int k, ToLongFunction<? super A> count, OutputStrategy<K, A> downstream) {
+        return new TopKOutputStrategy<>(k, SortedOutputStrategy.countOrder(count), downstream);
+    }
+
+    @Override
+    public void output(Stream<Pair<K, A>> collectOutput) {
+        // The root of the heap is the pair that would be discarded first
+        PriorityQueue<Pair<K, A>> topPairs = new PriorityQueue<>(k + 1, order.reversed());
+        collectOutput.forEach(pair -> {
+            if (topPairs.size() < k) {
+                topPairs.add(pair);
+            } else if (order.compare(pair, topPairs.peek()) < 0) {
+                topPairs.poll();
+                topPairs.add(pair);
+            }
+        });
+        List<Pair<K, A>> sortedTopPairs = new ArrayList<>(topPairs);
+        sortedTopPairs.sort(order);
+        downstream.output(sortedTopPairs.stream());
+    }
+}
@@ -0,0 +1,146 @@
+package it.unipi.m598992.jobscheduler.strategy;
+
+import it.unipi.m598992.auxfile.DistinctValues;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strategy used by the collect phase to reduce all the values emitted for the same key into a single accumulator.
+ * Only one accumulator per key is kept in memory, so jobs that only need counts or sums don't have to
+ * materialise the list of all the values.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values emitted by the jobs.
+ * @param <A> The type of the accumulator associated with each key.
+ */
+public interface AggregationStrategy<K, V, A> {
+
+    /**
+     * Creates the accumulator for a key seen for the first time.
+     *
+     * @return A new empty accumulator.
+     */
+    A createAccumulator();
+
+    /**
+     * Adds a value to the accumulator of its key. The accumulator can be updated in place and returned,
+     * or a new one can be returned.
+     *
+     * @param accumulator The current accumulator of the key.
+     * @param value       The value to add.
+     * @return The updated accumulator.
+     */
+    A accumulate(A accumulator, V value);
+
+    /**
+     * Merges two partial accumulators of the same key (combiner). Used when the values of a key are
+     * accumulated separately, e.g. by different workers in the parallel mode.
+     *
+     * @param left  The accumulator of the values emitted first.
+     * @param right The accumulator of the values emitted later.
+     * @return The accumulator of all the values.
+     */
+    A combine(A left, A right);
+
+    /**
+     * Aggregation that keeps all the values of a key in a list, in emission order.
+     */
+    static <K, V> AggregationStrategy<K, V, List<V>> toList() {
+        return new AggregationStrategy<>() {
+            @Override
+            public List<V> createAccumulator() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public List<V> accumulate(List<V> accumulator, V value) {
+                accumulator.add(value);
+                return accumulator;
+            }
+
+            @Override
+            public List<V> combine(List<V> left, List<V> right) {
+                left.addAll(right);
+                return left;
+            }
+        };
+    }
+
+    /**
+     * Aggregation that keeps the distinct values of a key with the number of occurrences of each of them, instead of
+     * all the occurrences: e.g. the distinct words of a 'CIAO' key and their frequencies, which take a fraction of
+     * the memory of toList() on natural-language text.
+     */
+    static <K, V> AggregationStrategy<K, V, DistinctValues<V>> distinct() {
+        return new AggregationStrategy<>() {
+            @Override
+            public DistinctValues<V> createAccumulator() {
+                return new DistinctValues<>();
+            }
+
+            @Override
+            public DistinctValues<V> accumulate(DistinctValues<V> accumulator, V value) {
+                accumulator.add(value);
+                return accumulator;
+            }
+
+            @Override
+            public DistinctValues<V> combine(DistinctValues<V> left, DistinctValues<V> right) {
+                // The order of the values doesn't matter, so the smaller set is added to the larger one
+                if (left.size() < right.size()) {
+                    right.addAll(left);
+                    return right;
+                }
+                left.addAll(right);
+                return left;
+            }
+        };
+    }
+
+    /**
+     * Aggregation that only counts the values of a key.
+     */
+    static <K, V> AggregationStrategy<K, V, Long> counting() {
+        return new AggregationStrategy<>() {
+            @Override
+            public Long createAccumulator() {
+                return 0L;
+            }
+
+            @Override
+            public Long accumulate(Long accumulator, V value) {
+                return accumulator + 1;
+            }
+
+            @Override
+            public Long combine(Long left, Long right) {
+                return left + right;
+            }
+        };
+    }
+
+    /**
+     * Aggregation that sums the int values of a key, e.g. partial counts computed by the jobs.
+     *
+     * @throws ArithmeticException If the sum overflows an int.
+     */
+    static <K> AggregationStrategy<K, Integer, Integer> summingInt() {
+        return new AggregationStrategy<>() {
+            @Override
+            public Integer createAccumulator() {
+                return 0;
+            }
+
+            @Override
+            public Integer accumulate(Integer accumulator, Integer value) {
+                return Math.addExact(accumulator, value);
+            }
+
+            @Override
+            public Integer combine(Integer left, Integer right) {
+                return Math.addExact(left, right);
+            }
+        };
+    }
+}
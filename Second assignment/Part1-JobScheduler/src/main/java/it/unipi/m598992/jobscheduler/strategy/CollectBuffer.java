@@ -0,0 +1,35 @@
+package it.unipi.m598992.jobscheduler.strategy;
+
+import it.unipi.m598992.auxfile.Pair;
+
+import java.util.stream.Stream;
+
+/**
+ * Container in which the collect phase of a single run aggregates the pairs produced by the jobs.
+ * Closing the buffer releases all its resources (e.g. temporary files).
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values emitted by the jobs.
+ * @param <A> The type of the accumulator associated with each key.
+ */
+public interface CollectBuffer<K, V, A> extends AutoCloseable {
+
+    /**
+     * Adds a value emitted by a job to the accumulator of its key.
+     */
+    void accumulate(K key, V value);
+
+    /**
+     * Combines a partial accumulator of a key, built outside the buffer, with the one in the buffer.
+     */
+    void combine(K key, A partialAccumulator);
+
+    /**
+     * Ends the collect phase and returns the aggregated pairs, one for each key. The stream must be closed
+     * once consumed.
+     */
+    Stream<Pair<K, A>> drain();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,20 @@
+package it.unipi.m598992.jobscheduler.strategy;
+
+/**
+ * Strategy that decides where the collect phase keeps the accumulators while the jobs are running
+ * (e.g. in memory or partially on disk).
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values emitted by the jobs.
+ * @param <A> The type of the accumulator associated with each key.
+ */
+public interface CollectStrategy<K, V, A> {
+
+    /**
+     * Opens the buffer used by the collect phase of a new run.
+     *
+     * @param aggregationStrategy The strategy used to reduce the values of each key.
+     * @return A new empty buffer.
+     */
+    CollectBuffer<K, V, A> open(AggregationStrategy<K, V, A> aggregationStrategy);
+}
@@ -0,0 +1,33 @@
+package it.unipi.m598992.jobscheduler.strategy;
+
+import it.unipi.m598992.auxfile.AJob;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Strategy for reusing the partial aggregation of a job computed by a previous run, so that only the jobs whose
+ * input has changed are executed again (incremental runs).
+ * The methods are invoked concurrently by the workers of the parallel mode.
+ *
+ * @param <K> The type of the keys.
+ * @param <A> The type of the accumulators.
+ */
+public interface JobCache<K, A> {
+
+    /**
+     * @param job The job about to be executed.
+     * @return The accumulators of each key of the job stored by a previous run, or an empty Optional if the job
+     * must be executed (its input has changed, it was never stored or it can't be cached).
+     */
+    Optional<Map<K, A>> lookup(AJob<K, ?> job);
+
+    /**
+     * Stores the partial aggregation of a job that has just been executed, so that it can be returned by lookup()
+     * in the following runs. Jobs that can't be cached are ignored.
+     *
+     * @param job                The job executed.
+     * @param partialAggregation The accumulators of each key of the job.
+     */
+    void store(AJob<K, ?> job, Map<K, A> partialAggregation);
+}
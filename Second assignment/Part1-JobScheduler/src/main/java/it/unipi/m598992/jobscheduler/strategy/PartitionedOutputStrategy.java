@@ -0,0 +1,21 @@
+package it.unipi.m598992.jobscheduler.strategy;
+
+import it.unipi.m598992.auxfile.Pair;
+
+import java.util.stream.Stream;
+
+/**
+ * Output strategy able to consume each partition of the collect phase independently (e.g. writing one file per
+ * partition). When the scheduler has more than one partition, outputPartition() is called once for each of them,
+ * possibly concurrently; otherwise output() is used.
+ */
+public interface PartitionedOutputStrategy<K, A> extends OutputStrategy<K, A> {
+
+    /**
+     * Consumes the pairs of a single partition.
+     *
+     * @param partition       The index of the partition.
+     * @param partitionOutput The stream of the pairs of the partition.
+     */
+    void outputPartition(int partition, Stream<Pair<K, A>> partitionOutput);
+}
@@ -0,0 +1,29 @@
+package it.unipi.m598992.jobscheduler.strategy;
+
+/**
+ * Strategy that assigns each key to one of the partitions of the collect phase.
+ * All the pairs with the same key must be assigned to the same partition.
+ *
+ * @param <K> The type of the keys.
+ */
+@FunctionalInterface
+public interface Partitioner<K> {
+
+    /**
+     * @param key                The key of a pair.
+     * @param numberOfPartitions The number of partitions, always positive.
+     * @return The index of the partition of the key, between 0 (inclusive) and numberOfPartitions (exclusive).
+     */
+    int partition(K key, int numberOfPartitions);
+
+    /**
+     * Partitioner based on the hash code of the keys.
+     */
+    static <K> Partitioner<K> hash() {
+        return (key, numberOfPartitions) -> {
+            int hash = key.hashCode();
+            // Spread the high bits, as HashMap does, so that keys differing only in them don't collide
+            return Math.floorMod(hash ^ (hash >>> 16), numberOfPartitions);
+        };
+    }
+}
@@ -0,0 +1,453 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.auxfile.DistinctValues;
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.exception.JobException;
+import it.unipi.m598992.jobscheduler.exception.TooManyFailuresException;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordReaderJob;
+import it.unipi.m598992.jobscheduler.metrics.JobMetrics;
+import it.unipi.m598992.jobscheduler.metrics.MetricsListener;
+import it.unipi.m598992.jobscheduler.metrics.Phase;
+import it.unipi.m598992.jobscheduler.metrics.RunMetrics;
+import it.unipi.m598992.jobscheduler.metrics.StageStatistics;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.EmitStrategy;
+import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+import it.unipi.m598992.jobscheduler.strategy.PartitionedOutputStrategy;
+import it.unipi.m598992.jobscheduler.strategy.Partitioner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobSchedulerTest {
+
+    private final EmitStrategy<String, String> emitStrategy = () -> Stream.of(
+            new CiaoWordReaderJob("src/test/resources/Ulysses.txt"),
+            new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"),
+            new CiaoWordReaderJob("src/test/resources/Ulysses.txt"));
+
+    @Test
+    void testParallelModeMatchesSequentialMode() {
+        Map<String, List<String>> sequential = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectInto(sequential)).runSteps();
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        Map<String, List<String>> forkJoin = new HashMap<>();
+        try {
+            new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectInto(forkJoin))
+                    .withExecutor(forkJoinPool)
+                    .runSteps();
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        ExecutorService fixedPool = Executors.newFixedThreadPool(3);
+        Map<String, List<String>> fixed = new HashMap<>();
+        try {
+            new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectInto(fixed))
+                    .withExecutor(fixedPool)
+                    .runSteps();
+        } finally {
+            fixedPool.shutdown();
+        }
+
+        assertEquals(sequential, forkJoin);
+        assertEquals(sequential, fixed);
+    }
+
+    @Test
+    void testJobsInFlightAreBounded() throws Exception {
+        // The first job blocks, so the following ones can't be combined and keep their permits
+        CountDownLatch firstJobReleased = new CountDownLatch(1);
+        AtomicInteger startedJobs = new AtomicInteger();
+        EmitStrategy<String, String> emitStrategy = () -> IntStream.range(0, 10)
+                .mapToObj(i -> new NamedJob("job" + i, () -> {
+                    startedJobs.incrementAndGet();
+                    if (i == 0) {
+                        try {
+                            firstJobReleased.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                    return Stream.of(new Pair<>("k", "v" + i));
+                }));
+        ExecutorService fixedPool = Executors.newFixedThreadPool(4);
+        try {
+            Map<String, Long> counted = new HashMap<>();
+            CompletableFuture<JobResult> run = CompletableFuture.supplyAsync(() -> new JobScheduler<>(emitStrategy,
+                    AggregationStrategy.counting(), collectInto(counted))
+                    .withExecutor(fixedPool)
+                    .withMaxJobsInFlight(3)
+                    .runSteps());
+            while (startedJobs.get() < 3) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            assertEquals(3, startedJobs.get());
+
+            firstJobReleased.countDown();
+            run.get();
+            assertEquals(Map.of("k", 10L), counted);
+        } finally {
+            fixedPool.shutdown();
+        }
+    }
+
+    @Test
+    void testCountingAggregationMatchesListSizes() {
+        Map<String, List<String>> grouped = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectInto(grouped)).runSteps();
+
+        Map<String, Long> counted = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.counting(), collectInto(counted))
+                .withExecutor(ForkJoinPool.commonPool())
+                .runSteps();
+
+        assertEquals(grouped.keySet(), counted.keySet());
+        grouped.forEach((key, values) -> assertEquals(values.size(), counted.get(key)));
+    }
+
+    @Test
+    void testDistinctAggregationKeepsFrequencies() {
+        Map<String, List<String>> grouped = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectInto(grouped)).runSteps();
+
+        Map<String, DistinctValues<String>> distinct = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.distinct(), collectInto(distinct))
+                .withExecutor(ForkJoinPool.commonPool())
+                .runSteps();
+
+        assertEquals(grouped.keySet(), distinct.keySet());
+        grouped.forEach((key, values) -> {
+            DistinctValues<String> distinctValues = distinct.get(key);
+            assertEquals(values.size(), distinctValues.totalCount());
+            assertEquals(Set.copyOf(values), Set.copyOf(distinctValues.values()));
+            distinctValues.forEach((value, occurrences) ->
+                    assertEquals(Collections.frequency(values, value), occurrences));
+        });
+    }
+
+    @Test
+    void testPartitionsAreCollectedAndOutputIndependently() {
+        Map<String, List<String>> unpartitioned = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectInto(unpartitioned)).runSteps();
+
+        int numberOfPartitions = 4;
+        Partitioner<String> partitioner = Partitioner.hash();
+        Map<Integer, Map<String, List<String>>> partitioned = new ConcurrentHashMap<>();
+        PartitionedOutputStrategy<String, List<String>> partitionedOutput = new PartitionedOutputStrategy<>() {
+            @Override
+            public void outputPartition(int partition, Stream<Pair<String, List<String>>> partitionOutput) {
+                Map<String, List<String>> result = new HashMap<>();
+                partitionOutput.forEach(pair -> result.put(pair.getKey(), pair.getValue()));
+                partitioned.put(partition, result);
+            }
+
+            @Override
+            public void output(Stream<Pair<String, List<String>>> collectOutput) {
+                throw new AssertionError("Each partition must be output independently");
+            }
+        };
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), partitionedOutput)
+                .withExecutor(ForkJoinPool.commonPool())
+                .withPartitions(numberOfPartitions, partitioner)
+                .runSteps();
+
+        assertEquals(numberOfPartitions, partitioned.size());
+        Map<String, List<String>> merged = new HashMap<>();
+        partitioned.forEach((partition, result) -> {
+            assertTrue(result.keySet().stream()
+                    .allMatch(key -> partitioner.partition(key, numberOfPartitions) == partition));
+            merged.putAll(result);
+        });
+        assertEquals(unpartitioned, merged);
+    }
+
+    @Test
+    void testParallelModeRethrowsJobException() {
+        EmitStrategy<String, String> failingEmitStrategy = () -> Stream.<AJob<String, String>>of(
+                new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"),
+                new CiaoWordReaderJob("src/test/resources/missing.txt"));
+        JobScheduler<String, String, Long> sut = new JobScheduler<>(failingEmitStrategy,
+                AggregationStrategy.counting(), collectOutput -> { })
+                .withExecutor(ForkJoinPool.commonPool());
+
+        assertThrows(JobException.class, sut::runSteps);
+    }
+
+    @Test
+    void testStagedPipelineMatchesSequentialMode() {
+        Map<String, Long> sequential = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.counting(), collectInto(sequential)).runSteps();
+
+        PipelineConfig pipelineConfig = new PipelineConfig()
+                .withComputeWorkers(3)
+                .withCollectWorkers(2)
+                .withQueueCapacity(1);
+        Map<String, Long> pipelined = new ConcurrentHashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.counting(), collectInto(pipelined))
+                .withPartitions(4)
+                .withStagedPipeline(pipelineConfig)
+                .runSteps();
+
+        assertEquals(sequential, pipelined);
+        List<StageStatistics> statistics = pipelineConfig.getStatistics();
+        assertEquals(List.of("emit", "compute", "collect"), statistics.stream().map(StageStatistics::getStage).toList());
+        // each collect worker receives all the partial aggregations, and combines the partitions it owns
+        assertEquals(List.of(3L, 3L, 6L), statistics.stream().map(StageStatistics::getItems).toList());
+        assertTrue(statistics.stream().allMatch(stage -> stage.getMaxQueueDepth() <= 1));
+    }
+
+    @Test
+    void testStagedPipelineRethrowsJobException() {
+        EmitStrategy<String, String> failingEmitStrategy = () -> Stream.<AJob<String, String>>of(
+                new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"),
+                new CiaoWordReaderJob("src/test/resources/missing.txt"));
+        JobScheduler<String, String, Long> sut = new JobScheduler<>(failingEmitStrategy,
+                AggregationStrategy.counting(), collectOutput -> { })
+                .withStagedPipeline(new PipelineConfig().withComputeWorkers(2));
+
+        assertThrows(JobException.class, sut::runSteps);
+    }
+
+    @Test
+    void testFailedJobsAreSkippedAndReported() {
+        EmitStrategy<String, String> failingEmitStrategy = () -> Stream.<AJob<String, String>>of(
+                new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"),
+                new CiaoWordReaderJob("src/test/resources/missing.txt"),
+                new CiaoWordReaderJob("src/test/resources/Ulysses.txt"));
+        EmitStrategy<String, String> readableEmitStrategy = () -> Stream.<AJob<String, String>>of(
+                new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"),
+                new CiaoWordReaderJob("src/test/resources/Ulysses.txt"));
+        Map<String, Long> expected = new HashMap<>();
+        new JobScheduler<>(readableEmitStrategy, AggregationStrategy.counting(), collectInto(expected)).runSteps();
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            Map<String, Long> counted = new HashMap<>();
+            JobResult result = new JobScheduler<>(failingEmitStrategy, AggregationStrategy.counting(),
+                    collectInto(counted))
+                    .withExecutor(parallel ? ForkJoinPool.commonPool() : null)
+                    .withFailurePolicy(FailurePolicy.skipAndReport().withRetries(2, Duration.ofMillis(1)))
+                    .runSteps();
+
+            assertEquals(expected, counted);
+            assertEquals(3, result.getNumberOfJobs());
+            assertEquals(1, result.getFailedJobs().size());
+            JobFailure failure = result.getFailedJobs().get(0);
+            assertTrue(failure.getJob().endsWith("missing.txt"));
+            assertEquals(3, failure.getAttempts());
+            assertTrue(failure.getCause() instanceof JobException);
+        }
+    }
+
+    @Test
+    void testRetriedJobContributesOnce() {
+        // The job fails after emitting its first pair, and succeeds when retried
+        AtomicInteger attempts = new AtomicInteger();
+        AJob<String, String> flakyJob = new AJob<>() {
+            @Override
+            public Stream<Pair<String, String>> execute() {
+                boolean fails = attempts.incrementAndGet() == 1;
+                return Stream.of("ciao", "ciao", "acio").map(word -> {
+                    if (fails && word.equals("acio")) {
+                        throw new JobException(new IOException("transient failure"));
+                    }
+                    return new Pair<>("aci", word);
+                });
+            }
+        };
+        for (boolean parallel : new boolean[]{false, true}) {
+            attempts.set(0);
+            Map<String, Long> counted = new HashMap<>();
+            JobResult result = new JobScheduler<>(() -> Stream.of(flakyJob), AggregationStrategy.counting(),
+                    collectInto(counted))
+                    .withExecutor(parallel ? ForkJoinPool.commonPool() : null)
+                    .withFailurePolicy(FailurePolicy.failFast().withRetries(1, Duration.ofMillis(10)))
+                    .runSteps();
+
+            assertEquals(Map.of("aci", 3L), counted);
+            assertEquals(2, attempts.get());
+            assertTrue(result.getFailedJobs().isEmpty());
+            // The failed attempt isn't counted by the metrics
+            assertEquals(1, result.getRunMetrics().getJobs());
+            assertEquals(3, result.getRunMetrics().getPairs());
+        }
+    }
+
+    @Test
+    void testTooManyFailuresStopTheRun() {
+        EmitStrategy<String, String> failingEmitStrategy = () -> Stream.<AJob<String, String>>of(
+                new CiaoWordReaderJob("src/test/resources/missing.txt"),
+                new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"),
+                new CiaoWordReaderJob("src/test/resources/missing.txt"));
+
+        JobResult result = new JobScheduler<>(failingEmitStrategy, AggregationStrategy.counting(), collectOutput -> { })
+                .withFailurePolicy(FailurePolicy.maxFailures(2))
+                .runSteps();
+        assertEquals(2, result.getFailedJobs().size());
+
+        JobScheduler<String, String, Long> sut = new JobScheduler<>(failingEmitStrategy,
+                AggregationStrategy.counting(), collectOutput -> { })
+                .withFailurePolicy(FailurePolicy.maxFailures(1));
+        TooManyFailuresException e = assertThrows(TooManyFailuresException.class, sut::runSteps);
+        assertTrue(e.getCause() instanceof JobException);
+    }
+
+    @Test
+    void testRunResumesFromCheckpoint(@TempDir Path tempDir) throws IOException {
+        // The last document is missing in the first run, which stops after saving the jobs of the others
+        Path lastDocument = tempDir.resolve("last.txt");
+        EmitStrategy<String, String> emitStrategy = () -> Stream.<AJob<String, String>>of(
+                new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"),
+                new CiaoWordReaderJob("src/test/resources/Ulysses.txt"),
+                new CiaoWordReaderJob(lastDocument.toString()));
+        CheckpointConfig<String, List<String>> checkpointConfig = new CheckpointConfig<>(
+                tempDir.resolve("run.checkpoint"), Codec.utf8(), Codec.listOf(Codec.utf8()))
+                .withInterval(Duration.ZERO);
+        JobScheduler<String, String, List<String>> interrupted = new JobScheduler<>(emitStrategy,
+                AggregationStrategy.toList(), collectOutput -> { })
+                .withCheckpoint(checkpointConfig);
+        assertThrows(JobException.class, interrupted::runSteps);
+        assertTrue(Files.exists(checkpointConfig.getFile()));
+        // A segment left incomplete by a crash is discarded
+        Files.write(checkpointConfig.getFile(), new byte[]{0, 0, 1, 0, 0, 0, 0, 0, 42},
+                StandardOpenOption.APPEND);
+
+        Files.copy(Path.of("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"), lastDocument);
+        Map<String, List<String>> uninterrupted = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectInto(uninterrupted)).runSteps();
+        Map<String, List<String>> resumed = new HashMap<>();
+        JobResult result = new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectInto(resumed))
+                .withCheckpoint(checkpointConfig)
+                .runSteps();
+
+        assertEquals(uninterrupted, resumed);
+        assertEquals(1, result.getRunMetrics().getJobs());
+        assertFalse(Files.exists(checkpointConfig.getFile()));
+    }
+
+    @Test
+    void testJobsWithoutToStringNeedAnExplicitJobId(@TempDir Path tempDir) {
+        // The second job fails in the first run only
+        AtomicInteger runs = new AtomicInteger();
+        EmitStrategy<String, String> emitStrategy = () -> {
+            int run = runs.incrementAndGet();
+            return Stream.of(new NamedJob("first", () -> Stream.of(new Pair<>("k", "a"))),
+                    new NamedJob("second", () -> {
+                        if (run == 1) {
+                            throw new JobException(new IOException("Unavailable"));
+                        }
+                        return Stream.of(new Pair<>("k", "b"));
+                    }));
+        };
+        CheckpointConfig<String, Long> checkpointConfig = new CheckpointConfig<>(
+                tempDir.resolve("run.checkpoint"), Codec.utf8(), Codec.int64())
+                .withInterval(Duration.ZERO);
+        JobScheduler<String, String, Long> withoutJobId = new JobScheduler<>(emitStrategy,
+                AggregationStrategy.counting(), collectOutput -> { })
+                .withCheckpoint(checkpointConfig);
+        assertThrows(IllegalArgumentException.class, withoutJobId::runSteps);
+
+        runs.set(0);
+        checkpointConfig.withJobId(job -> ((NamedJob) job).name);
+        Map<String, Long> counted = new HashMap<>();
+        JobScheduler<String, String, Long> sut = new JobScheduler<>(emitStrategy, AggregationStrategy.counting(),
+                collectInto(counted))
+                .withCheckpoint(checkpointConfig);
+        assertThrows(JobException.class, sut::runSteps);
+        JobResult result = sut.runSteps();
+
+        assertEquals(Map.of("k", 2L), counted);
+        assertEquals(1, result.getRestoredJobs());
+    }
+
+    @Test
+    void testMetricsAreRecorded() throws IOException {
+        long corpusSize = 2 * Files.size(Path.of("src/test/resources/Ulysses.txt"))
+                + Files.size(Path.of("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"));
+        for (boolean parallel : new boolean[]{false, true}) {
+            List<JobMetrics> jobMetrics = Collections.synchronizedList(new ArrayList<>());
+            List<RunMetrics> runMetrics = new ArrayList<>();
+            Map<String, Long> counted = new HashMap<>();
+            JobResult result = new JobScheduler<>(emitStrategy, AggregationStrategy.counting(), collectInto(counted))
+                    .withExecutor(parallel ? ForkJoinPool.commonPool() : null)
+                    .withMetricsListener(new MetricsListener() {
+                        @Override
+                        public void jobCompleted(JobMetrics metrics) {
+                            jobMetrics.add(metrics);
+                        }
+
+                        @Override
+                        public void runCompleted(RunMetrics metrics) {
+                            runMetrics.add(metrics);
+                        }
+                    })
+                    .runSteps();
+
+            RunMetrics sut = result.getRunMetrics();
+            assertEquals(List.of(sut), runMetrics);
+            assertEquals(3, jobMetrics.size());
+            assertEquals(3, sut.getJobs());
+            assertEquals(counted.values().stream().mapToLong(Long::longValue).sum(), sut.getPairs());
+            assertEquals(jobMetrics.stream().mapToLong(JobMetrics::getPairs).sum(), sut.getPairs());
+            assertEquals(corpusSize, sut.getBytesRead());
+            assertTrue(sut.getTokensRead() > sut.getPairs());
+            assertEquals(counted.size(), sut.getDistinctKeys());
+            assertEquals(Collections.max(counted.values()), sut.getPeakGroupSize());
+            assertTrue(sut.getPhase(Phase.COMPUTE).getWallTime().toNanos() > 0);
+            assertTrue(sut.getPhase(Phase.OUTPUT).getWallTime().toNanos() > 0);
+            assertEquals(parallel, sut.getPhase(Phase.COLLECT).getWallTime().toNanos() > 0);
+        }
+    }
+
+    /**
+     * A job identified by its name, without overriding toString().
+     */
+    private static final class NamedJob extends AJob<String, String> {
+        private final String name;
+        private final Supplier<Stream<Pair<String, String>>> pairs;
+
+        private NamedJob(String name, Supplier<Stream<Pair<String, String>>> pairs) {
+            this.name = name;
+            this.pairs = pairs;
+        }
+
+        @Override
+        public Stream<Pair<String, String>> execute() {
+            return pairs.get();
+        }
+    }
+
+    private static <A> OutputStrategy<String, A> collectInto(Map<String, A> result) {
+        return collectOutput -> collectOutput.forEach(pair -> result.put(pair.getKey(), pair.getValue()));
+    }
+}
@@ -0,0 +1,154 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.exception.JobException;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordReaderJob;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.EmitStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static it.unipi.m598992.jobscheduler.TestCorpus.collectInto;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JobWorkerTest {
+
+    private final EmitStrategy<String, String> emitStrategy = TestCorpus.books(2);
+
+    private final List<JobWorker<String, String, Long>> workers = new ArrayList<>();
+
+    @BeforeEach
+    void startWorkers() {
+        for (int i = 0; i < 2; i++) {
+            JobWorker<String, String, Long> worker = new JobWorker<>(0, CiaoWordReaderJob.codec(),
+                    AggregationStrategy.counting(), Codec.utf8(), Codec.int64())
+                    .withThreads(2);
+            Thread thread = new Thread(worker);
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(worker);
+        }
+    }
+
+    @AfterEach
+    void stopWorkers() {
+        workers.forEach(JobWorker::close);
+    }
+
+    @Test
+    void testDistributedModeMatchesSequentialMode() {
+        Map<String, Long> sequential = TestCorpus.sequentialResult(emitStrategy, AggregationStrategy.counting());
+
+        Map<String, Long> distributed = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.counting(), collectInto(distributed))
+                .withPartitions(3)
+                .withDistributedWorkers(distributedConfig(addressOf(workers.get(0)), addressOf(workers.get(1))))
+                .runSteps();
+
+        assertEquals(sequential, distributed);
+    }
+
+    @Test
+    void testJobsOfLostWorkerAreReassigned() throws IOException {
+        Map<String, Long> sequential = TestCorpus.sequentialResult(emitStrategy, AggregationStrategy.counting());
+
+        // A worker crashing as soon as it receives its first job
+        try (ServerSocket crashingWorker = new ServerSocket(0)) {
+            Thread thread = new Thread(() -> {
+                try (Socket socket = crashingWorker.accept()) {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    in.readInt();
+                    in.readInt();
+                    in.readByte();
+                } catch (IOException e) {
+                    // The test is over
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+
+            Map<String, Long> distributed = new HashMap<>();
+            new JobScheduler<>(emitStrategy, AggregationStrategy.counting(), collectInto(distributed))
+                    .withDistributedWorkers(distributedConfig(
+                            new InetSocketAddress("localhost", crashingWorker.getLocalPort()),
+                            addressOf(workers.get(0))))
+                    .runSteps();
+
+            assertEquals(sequential, distributed);
+        }
+    }
+
+    @Test
+    void testJobsOfHungWorkerAreReassigned() throws IOException {
+        Map<String, Long> sequential = TestCorpus.sequentialResult(emitStrategy, AggregationStrategy.counting());
+
+        // A worker accepting the jobs and never answering, without closing the connection
+        try (ServerSocket hungWorker = new ServerSocket(0)) {
+            Thread thread = new Thread(() -> {
+                try (Socket socket = hungWorker.accept()) {
+                    socket.getInputStream().transferTo(OutputStream.nullOutputStream());
+                } catch (IOException e) {
+                    // The test is over
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+
+            Map<String, Long> distributed = new HashMap<>();
+            new JobScheduler<>(emitStrategy, AggregationStrategy.counting(), collectInto(distributed))
+                    .withDistributedWorkers(distributedConfig(
+                            new InetSocketAddress("localhost", hungWorker.getLocalPort()),
+                            addressOf(workers.get(0)))
+                            .withJobTimeout(Duration.ofMillis(500)))
+                    .runSteps();
+
+            assertEquals(sequential, distributed);
+        }
+    }
+
+    @Test
+    void testWorkerWithAnotherPartitionerIsDetected() {
+        JobScheduler<String, String, Long> sut = new JobScheduler<>(emitStrategy, AggregationStrategy.counting(),
+                collectOutput -> { })
+                .withPartitions(3, (key, numberOfPartitions) -> key.length() % numberOfPartitions)
+                .withDistributedWorkers(distributedConfig(addressOf(workers.get(0))));
+
+        assertThrows(IllegalStateException.class, sut::runSteps);
+    }
+
+    @Test
+    void testDistributedModeRethrowsJobException() {
+        EmitStrategy<String, String> failingEmitStrategy = () -> Stream.<AJob<String, String>>of(
+                new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"),
+                new CiaoWordReaderJob("src/test/resources/missing.txt"));
+        JobScheduler<String, String, Long> sut = new JobScheduler<>(failingEmitStrategy,
+                AggregationStrategy.counting(), collectOutput -> { })
+                .withDistributedWorkers(distributedConfig(addressOf(workers.get(0))));
+
+        assertThrows(JobException.class, sut::runSteps);
+    }
+
+    private static DistributedConfig<String, String, Long> distributedConfig(InetSocketAddress... workers) {
+        return new DistributedConfig<>(List.of(workers), CiaoWordReaderJob.codec(), Codec.utf8(), Codec.int64());
+    }
+
+    private static InetSocketAddress addressOf(JobWorker<?, ?, ?> worker) {
+        return new InetSocketAddress("localhost", worker.getPort());
+    }
+}
@@ -0,0 +1,72 @@
+package it.unipi.m598992.jobscheduler;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordReaderJob;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.EmitStrategy;
+import it.unipi.m598992.jobscheduler.strategy.OutputStrategy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Fixture of the tests running the scheduler end to end on the books of the test resources, and comparing a mode or
+ * an output strategy with the result of a plain sequential run.
+ */
+public final class TestCorpus {
+
+    private TestCorpus() {
+    }
+
+    /**
+     * @return An emit strategy with a job reading Ulysses and a job reading The Adventures of Sherlock Holmes.
+     */
+    public static EmitStrategy<String, String> books() {
+        return books(1);
+    }
+
+    /**
+     * @param copies The number of times the two books are read.
+     * @return An emit strategy with a job reading Ulysses and a job reading The Adventures of Sherlock Holmes, repeated
+     * the given number of times.
+     */
+    public static EmitStrategy<String, String> books(int copies) {
+        return () -> IntStream.range(0, copies).boxed().flatMap(copy -> Stream.<AJob<String, String>>of(
+                new CiaoWordReaderJob("src/test/resources/Ulysses.txt"),
+                new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt")));
+    }
+
+    /**
+     * Runs the scheduler with the default configuration: the result the other modes must produce.
+     *
+     * @param emitStrategy        The jobs of the run.
+     * @param aggregationStrategy The aggregation of the values of each key.
+     * @return The accumulator of each key.
+     */
+    public static <A> Map<String, A> sequentialResult(EmitStrategy<String, String> emitStrategy,
+                                                      AggregationStrategy<String, String, A> aggregationStrategy) {
+        Map<String, A> result = new HashMap<>();
+        new JobScheduler<>(emitStrategy, aggregationStrategy, collectInto(result)).runSteps();
+        return result;
+    }
+
+    /**
+     * @param result The map receiving the pairs.
+     * @return An output strategy putting each pair in the map.
+     */
+    public static <K, A> OutputStrategy<K, A> collectInto(Map<K, A> result) {
+        return collectOutput -> collectOutput.forEach(pair -> result.put(pair.getKey(), pair.getValue()));
+    }
+
+    /**
+     * @param result The list receiving the pairs.
+     * @return An output strategy adding the pairs to the list, in the order they are received.
+     */
+    public static <K, A> OutputStrategy<K, A> collectInto(List<Pair<K, A>> result) {
+        return collectOutput -> collectOutput.forEach(result::add);
+    }
+}
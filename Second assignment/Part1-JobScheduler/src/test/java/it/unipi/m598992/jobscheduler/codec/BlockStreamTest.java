@@ -0,0 +1,125 @@
+package it.unipi.m598992.jobscheduler.codec;
+
+import it.unipi.m598992.auxfile.DistinctValues;
+import it.unipi.m598992.auxfile.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockStreamTest {
+
+    @Test
+    void testCodecsRoundTrip() throws IOException {
+        Codec<List<Pair<String, Long>>> codec = Codec.listOf(Codec.pairOf(Codec.utf8(), Codec.varint64()));
+        List<Pair<String, Long>> pairs = List.of(new Pair<>("ciao", 0L), new Pair<>("àèìòù", -1L),
+                new Pair<>("", Long.MAX_VALUE), new Pair<>("x".repeat(300), Long.MIN_VALUE));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), pairs);
+
+        List<Pair<String, Long>> decoded = codec.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(pairs.size(), decoded.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            assertEquals(pairs.get(i).getKey(), decoded.get(i).getKey());
+            assertEquals(pairs.get(i).getValue(), decoded.get(i).getValue());
+        }
+    }
+
+    @Test
+    void testDistinctValuesRoundTrip() throws IOException {
+        // Large enough to leave the compact representation
+        DistinctValues<String> distinctValues = new DistinctValues<>();
+        for (int i = 0; i < 1000; i++) {
+            distinctValues.add("word" + i % 100);
+        }
+        Codec<DistinctValues<String>> codec = Codec.distinctOf(Codec.utf8());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), distinctValues);
+
+        DistinctValues<String> decoded = codec.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(100, decoded.size());
+        assertEquals(1000, decoded.totalCount());
+        assertEquals(10, decoded.count("word42"));
+        assertEquals(0, decoded.count("word100"));
+    }
+
+    @Test
+    void testSmallCountsTakeOneByte() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Codec.varint64().write(new DataOutputStream(bytes), 63L);
+        assertEquals(1, bytes.size());
+    }
+
+    @Test
+    void testCompressibleAndRandomDataRoundTrip() throws IOException {
+        byte[] text = Files.readAllBytes(Path.of("src/test/resources/Ulysses.txt"));
+        byte[] random = new byte[200_000];
+        new Random(42).nextBytes(random);
+
+        for (byte[] data : List.of(text, random, new byte[100_000], new byte[0])) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (BlockOutputStream out = new BlockOutputStream(compressed)) {
+                out.write(data);
+            }
+            assertArrayEquals(data, readAll(compressed.toByteArray()));
+            if (data == text) {
+                assertTrue(compressed.size() < data.length * 3 / 4, "Text must be compressed");
+            } else if (data == random) {
+                assertTrue(compressed.size() < data.length + 1024, "Random data must be stored as is");
+            }
+        }
+    }
+
+    @Test
+    void testCorruptedBlockIsDetected() throws IOException {
+        byte[] text = Files.readAllBytes(Path.of("src/test/resources/Ulysses.txt"));
+        byte[] stream = write(Arrays.copyOf(text, 300_000));
+
+        stream[stream.length / 2] ^= 0x10;
+
+        assertThrows(CorruptedBlockException.class, () -> readAll(stream));
+    }
+
+    @Test
+    void testTruncatedStreamIsDetected() throws IOException {
+        byte[] text = Files.readAllBytes(Path.of("src/test/resources/Ulysses.txt"));
+        byte[] stream = write(Arrays.copyOf(text, 300_000));
+
+        // Truncated in the middle of a block, and right before the end block
+        assertThrows(EOFException.class, () -> readAll(Arrays.copyOf(stream, stream.length / 2)));
+        assertThrows(EOFException.class, () -> readAll(Arrays.copyOf(stream,
+                stream.length - BlockFormat.HEADER_SIZE)));
+    }
+
+    private static byte[] write(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BlockOutputStream out = new BlockOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(byte[] stream) throws IOException {
+        try (BlockInputStream in = new BlockInputStream(new ByteArrayInputStream(stream))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package it.unipi.m598992.jobscheduler.collect;
+
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.instance.CiaoWordReaderJob;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.CollectBuffer;
+import it.unipi.m598992.jobscheduler.strategy.EmitStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExternalSortCollectStrategyTest {
+
+    private final EmitStrategy<String, String> emitStrategy = () -> Stream.of(
+            new CiaoWordReaderJob("src/test/resources/Ulysses.txt"),
+            new CiaoWordReaderJob("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"));
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void testSpilledRunsMatchInMemoryCollect() throws IOException {
+        Map<String, List<String>> inMemory = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(),
+                collectOutput -> collectOutput.forEach(pair -> inMemory.put(pair.getKey(), pair.getValue())))
+                .runSteps();
+
+        List<String> spilledKeys = new ArrayList<>();
+        Map<String, List<String>> spilled = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(), collectOutput -> collectOutput.forEach(pair -> {
+            spilledKeys.add(pair.getKey());
+            spilled.put(pair.getKey(), pair.getValue());
+        }))
+                .withCollectStrategy(new ExternalSortCollectStrategy<>(Comparator.naturalOrder(), Codec.utf8(),
+                        Codec.listOf(Codec.utf8()), 500, spillDirectory))
+                .runSteps();
+
+        assertEquals(inMemory, spilled);
+        // The merge produces each key once, sorted
+        assertEquals(spilledKeys.stream().sorted().distinct().toList(), spilledKeys);
+        // The runs are deleted at the end of the run
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertTrue(files.findAny().isEmpty());
+        }
+    }
+
+    @Test
+    void testBudgetCountsTheValuesOfTheLists() {
+        ExternalSortCollectStrategy<String, String, List<String>> sut = new ExternalSortCollectStrategy<>(
+                Comparator.naturalOrder(), Codec.utf8(), Codec.listOf(Codec.utf8()), 3, spillDirectory);
+        try (CollectBuffer<String, String, List<String>> buffer = sut.open(AggregationStrategy.toList())) {
+            buffer.accumulate("acio", "ciao");
+            buffer.accumulate("acio", "ciao");
+            assertEquals(0, runsInSpillDirectory());
+            // The third value of the same key crosses the budget
+            buffer.accumulate("acio", "ocia");
+            assertEquals(1, runsInSpillDirectory());
+        }
+        assertEquals(0, runsInSpillDirectory());
+    }
+
+    @Test
+    void testMultiPassMergeWithSmallFanIn() {
+        Map<String, List<String>> inMemory = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(),
+                collectOutput -> collectOutput.forEach(pair -> inMemory.put(pair.getKey(), pair.getValue())))
+                .runSteps();
+
+        Map<String, List<String>> spilled = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.toList(),
+                collectOutput -> collectOutput.forEach(pair -> spilled.put(pair.getKey(), pair.getValue())))
+                .withCollectStrategy(new ExternalSortCollectStrategy<String, String, List<String>>(
+                        Comparator.naturalOrder(), Codec.utf8(), Codec.listOf(Codec.utf8()), 20_000, spillDirectory)
+                        .withMaxFanIn(3))
+                .runSteps();
+
+        // The values of each key keep the emission order across the merge passes
+        assertEquals(inMemory, spilled);
+        assertEquals(0, runsInSpillDirectory());
+    }
+
+    @Test
+    void testSpilledCountsMatchInMemoryCollectInParallelMode() {
+        Map<String, Long> inMemory = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.counting(),
+                collectOutput -> collectOutput.forEach(pair -> inMemory.put(pair.getKey(), pair.getValue())))
+                .runSteps();
+
+        Map<String, Long> spilled = new HashMap<>();
+        new JobScheduler<>(emitStrategy, AggregationStrategy.counting(),
+                collectOutput -> collectOutput.forEach(pair -> spilled.put(pair.getKey(), pair.getValue())))
+                .withExecutor(ForkJoinPool.commonPool())
+                .withCollectStrategy(new ExternalSortCollectStrategy<>(Comparator.naturalOrder(), Codec.utf8(),
+                        Codec.int64(), 300, spillDirectory))
+                .runSteps();
+
+        assertEquals(inMemory, spilled);
+    }
+
+    private long runsInSpillDirectory() {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.TestCorpus;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CiaoAnagramIndexTest {
+
+    @Test
+    void testIndexAnswersLookupsAndPrefixQueries() {
+        Map<String, List<String>> expected = new HashMap<>();
+        CiaoAnagramIndexOutput<List<String>> sut = new CiaoAnagramIndexOutput<List<String>>(List::size,
+                Function.identity())
+                .withDownstream(TestCorpus.collectInto(expected));
+        assertEquals(0, sut.getIndex().size());
+
+        new JobScheduler<>(TestCorpus.books(), AggregationStrategy.toList(), sut).runSteps();
+        CiaoAnagramIndex index = sut.getIndex();
+
+        assertEquals(expected.size(), index.size());
+        // Concurrent lookups of every key
+        expected.entrySet().parallelStream().forEach(entry -> {
+            List<String> distinctWords = entry.getValue().stream().distinct().sorted().toList();
+            assertEquals(OptionalLong.of(entry.getValue().size()), index.count(entry.getKey()));
+            assertEquals(distinctWords, index.words(entry.getKey()));
+            assertEquals(distinctWords, index.anagramsOf(distinctWords.get(0)));
+        });
+        assertEquals(List.of(), index.anagramsOf("qqqqqqq"));
+        assertEquals(OptionalLong.empty(), index.count("qqqqqqq"));
+
+        List<String> expectedKeys = expected.keySet().stream().filter(key -> key.startsWith("ab")).sorted().toList();
+        assertFalse(expectedKeys.isEmpty());
+        assertEquals(expectedKeys, index.keysWithPrefix("ab"));
+        assertEquals(expected.size(), index.keysWithPrefix("").size());
+    }
+
+    @Test
+    void testWordsAreDistinctAndLookupsIgnoreCase() {
+        CiaoAnagramIndex sut = CiaoAnagramIndex.of(Stream.of(
+                        new Pair<>("acio", List.of("ocia", "ciao", "ocia")),
+                        new Pair<>("ab", List.of("ba", "ab"))),
+                List::size, Function.identity());
+
+        assertEquals(2, sut.size());
+        assertEquals(OptionalLong.of(3), sut.count("acio"));
+        assertEquals(List.of("ciao", "ocia"), sut.words("acio"));
+        assertEquals(List.of("ciao", "ocia"), sut.anagramsOf("CIAO"));
+        assertEquals(List.of(), sut.words("ciao"));
+        assertThrows(UnsupportedOperationException.class, () -> sut.words("ab").add("x"));
+    }
+
+    @Test
+    void testPrefixQueriesAtTheBoundsOfTheKeys() {
+        CiaoAnagramIndex sut = CiaoAnagramIndex.of(Stream.of("b", "ab", "abc", "abd", "ac", "z")
+                .map(key -> new Pair<>(key, List.of(key))), List::size, Function.identity());
+
+        // The prefix can be a key itself, be between two keys, or follow all of them
+        assertEquals(List.of("ab", "abc", "abd"), sut.keysWithPrefix("ab"));
+        assertEquals(List.of("ab", "abc", "abd", "ac"), sut.keysWithPrefix("a"));
+        assertEquals(List.of(), sut.keysWithPrefix("abb"));
+        assertEquals(List.of("z"), sut.keysWithPrefix("z"));
+        assertEquals(List.of(), sut.keysWithPrefix("zz"));
+        assertEquals(6, sut.keysWithPrefix("").size());
+    }
+
+    @Test
+    void testDuplicateKeysAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CiaoAnagramIndex.of(Stream.of(
+                        new Pair<>("acio", List.of("ciao")), new Pair<>("ab", List.of("ba")),
+                        new Pair<>("acio", List.of("ocia"))),
+                List::size, Function.identity()));
+    }
+
+    @Test
+    void testManyKeysAndEmptyIndex() {
+        // Enough keys for the lookups to probe past colliding slots
+        List<String> keys = IntStream.range(0, 5000).mapToObj(i -> "k" + i).toList();
+        CiaoAnagramIndex sut = CiaoAnagramIndex.of(keys.stream().map(key -> new Pair<>(key, (long) key.length())),
+                Long::longValue, count -> List.of());
+
+        keys.forEach(key -> assertEquals(OptionalLong.of(key.length()), sut.count(key)));
+        assertEquals(OptionalLong.empty(), sut.count("k5000"));
+        assertEquals(List.of(), sut.words("k1"));
+        assertEquals(0, CiaoAnagramIndex.empty().size());
+        assertEquals(List.of(), CiaoAnagramIndex.empty().keysWithPrefix(""));
+        assertEquals(OptionalLong.empty(), CiaoAnagramIndex.empty().count("acio"));
+    }
+}
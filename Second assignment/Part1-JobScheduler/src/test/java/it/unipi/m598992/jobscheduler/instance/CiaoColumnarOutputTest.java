@@ -0,0 +1,107 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.TestCorpus;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CiaoColumnarOutputTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLookupsAndScansMatchTheCollectResult() throws IOException {
+        Map<String, List<String>> expected = TestCorpus.sequentialResult(TestCorpus.books(),
+                AggregationStrategy.toList());
+        Path file = directory.resolve("count_anagrams.bin");
+        new JobScheduler<>(TestCorpus.books(), AggregationStrategy.toList(),
+                new CiaoColumnarOutput<String, List<String>>(file, String::valueOf, List::size)
+                        .withMembers(Function.identity()))
+                .runSteps();
+
+        CiaoColumnarReader sut = new CiaoColumnarReader(file);
+
+        assertEquals(expected.size(), sut.size());
+        expected.forEach((key, words) -> {
+            assertEquals(OptionalLong.of(words.size()), sut.count(key));
+            assertEquals(words.stream().distinct().sorted().toList(), sut.members(key));
+        });
+        assertEquals(OptionalLong.empty(), sut.count("zzzzzzzzzz"));
+        assertEquals(List.of(), sut.members("zzzzzzzzzz"));
+
+        String[] sortedKeys = expected.keySet().stream().sorted().toArray(String[]::new);
+        List<Pair<String, Long>> scan = sut.range(sortedKeys[10], sortedKeys[500]).toList();
+        assertEquals(Arrays.asList(sortedKeys).subList(10, 500), scan.stream().map(Pair::getKey).toList());
+        scan.forEach(pair -> assertEquals(expected.get(pair.getKey()).size(), pair.getValue()));
+    }
+
+    @Test
+    void testDuplicateWordsAndRangeBounds() throws IOException {
+        Path file = directory.resolve("small.bin");
+        new CiaoColumnarOutput<String, List<String>>(file, String::valueOf, List::size)
+                .withMembers(Function.identity())
+                .output(Stream.of(new Pair<>("acio", List.of("ocia", "ciao", "ocia")),
+                        new Pair<>("ab", List.of("ba")),
+                        new Pair<>("abc", List.of("cab", "bac"))));
+
+        CiaoColumnarReader sut = new CiaoColumnarReader(file);
+
+        assertTrue(sut.hasMembers());
+        assertEquals(OptionalLong.of(3), sut.count("acio"));
+        assertEquals(List.of("ciao", "ocia"), sut.members("acio"));
+        assertEquals(OptionalLong.empty(), sut.count("a"));
+        // The bounds don't need to be keys of the file, and an empty or reversed range has no keys
+        assertEquals(List.of("ab", "abc"), sut.range("a", "ac").map(Pair::getKey).toList());
+        assertEquals(List.of("abc", "acio"), sut.range("abc", "zzz").map(Pair::getKey).toList());
+        assertEquals(0, sut.range("acio", "acio").count());
+        assertEquals(0, sut.range("zzz", "a").count());
+    }
+
+    @Test
+    void testKeysAcrossSeveralIndexBlocks() throws IOException {
+        // More keys than CiaoColumnarReader.STRIDE, with counts of different varint lengths
+        List<String> keys = IntStream.range(0, 3 * CiaoColumnarReader.STRIDE + 1)
+                .mapToObj(i -> String.format("k%04d", i))
+                .toList();
+        Path file = directory.resolve("blocks.bin");
+        new CiaoColumnarOutput<String, Long>(file, String::valueOf, Long::longValue)
+                .output(keys.stream().map(key -> new Pair<>(key, 1L << (Integer.parseInt(key.substring(1)) % 60))));
+
+        CiaoColumnarReader sut = new CiaoColumnarReader(file);
+
+        assertEquals(keys.size(), sut.size());
+        keys.forEach(key -> assertEquals(OptionalLong.of(1L << (Integer.parseInt(key.substring(1)) % 60)),
+                sut.count(key)));
+        List<Pair<String, Long>> scan = sut.range(keys.get(60), keys.get(130)).toList();
+        assertEquals(keys.subList(60, 130), scan.stream().map(Pair::getKey).toList());
+        scan.forEach(pair -> assertEquals(sut.count(pair.getKey()).getAsLong(), pair.getValue()));
+    }
+
+    @Test
+    void testEmptyResultAndMissingMembers() throws IOException {
+        Path file = directory.resolve("empty.bin");
+        new CiaoColumnarOutput<String, Long>(file, String::valueOf, Long::longValue).output(Stream.empty());
+
+        CiaoColumnarReader sut = new CiaoColumnarReader(file);
+
+        assertEquals(0, sut.size());
+        assertEquals(0, sut.range("", "zzz").count());
+        assertEquals(OptionalLong.empty(), sut.count("acio"));
+        assertThrows(IllegalStateException.class, () -> sut.members("acio"));
+    }
+}
@@ -0,0 +1,55 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CiaoDirectoryWatcherTest {
+
+    @Test
+    void testChangesArePublished(@TempDir Path directory) throws IOException, InterruptedException {
+        Files.writeString(directory.resolve("first.txt"), "ciao ocia");
+        AtomicReference<Map<String, Long>> published = new AtomicReference<>(Map.of());
+        Thread watchingThread;
+        try (CiaoDirectoryWatcher sut = new CiaoDirectoryWatcher(directory,
+                collectOutput -> published.set(collectOutput.collect(Collectors.toMap(
+                        pair -> pair.getKey(), pair -> pair.getValue()))),
+                Duration.ofMillis(50))) {
+            watchingThread = new Thread(sut);
+            watchingThread.start();
+            awaitPublication(published, Map.of("acio", 2L));
+
+            Files.writeString(directory.resolve("second.txt"), "ciao hello");
+            awaitPublication(published, Map.of("acio", 3L, "ehllo", 1L));
+
+            Files.writeString(directory.resolve("first.txt"), "world");
+            awaitPublication(published, Map.of("acio", 1L, "ehllo", 1L, "dlorw", 1L));
+
+            Files.delete(directory.resolve("second.txt"));
+            awaitPublication(published, Map.of("dlorw", 1L));
+            assertEquals(Map.of("dlorw", 1L), sut.snapshot());
+        }
+        // closing the watcher stops the watching thread
+        watchingThread.join(10_000);
+        assertFalse(watchingThread.isAlive());
+    }
+
+    private void awaitPublication(AtomicReference<Map<String, Long>> published, Map<String, Long> expected)
+            throws InterruptedException {
+        // the file system events are delivered asynchronously (some implementations poll the directory)
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!published.get().equals(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, published.get());
+    }
+}
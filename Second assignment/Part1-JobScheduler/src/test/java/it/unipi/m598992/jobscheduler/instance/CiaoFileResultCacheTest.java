@@ -0,0 +1,82 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.jobscheduler.JobResult;
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.codec.Codec;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CiaoFileResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testOnlyChangedDocumentsAreRead() throws IOException {
+        Path documents = Files.createDirectory(directory.resolve("documents"));
+        Path first = Files.writeString(documents.resolve("first.txt"), "ciao ciao ocia");
+        Files.writeString(documents.resolve("second.txt"), "hello world");
+        CiaoFileResultCache<Long> sut = new CiaoFileResultCache<>(directory.resolve("cache"), Codec.int64());
+
+        Map<String, Long> result = new HashMap<>();
+        assertCacheStatistics(0, 2, run(documents, sut, result));
+        assertEquals(Map.of("acio", 3L, "ehllo", 1L, "dlorw", 1L), result);
+
+        result.clear();
+        assertCacheStatistics(2, 0, run(documents, sut, result));
+        assertEquals(Map.of("acio", 3L, "ehllo", 1L, "dlorw", 1L), result);
+
+        // touching a document doesn't invalidate its entry
+        Files.setLastModifiedTime(first, FileTime.from(Instant.now().plusSeconds(60)));
+        assertCacheStatistics(2, 0, run(documents, new CiaoFileResultCache<>(directory.resolve("cache"),
+                Codec.int64()), new HashMap<>()));
+
+        // same size, different content
+        Files.writeString(first, "ciao ciao abcd");
+        Files.setLastModifiedTime(first, FileTime.from(Instant.now().plusSeconds(120)));
+        result.clear();
+        assertCacheStatistics(1, 1, run(documents, sut, result));
+        assertEquals(Map.of("acio", 2L, "abcd", 1L, "ehllo", 1L, "dlorw", 1L), result);
+    }
+
+    @Test
+    void testDocumentChangedWhileReadIsReadAgain() throws IOException {
+        Path document = Files.writeString(directory.resolve("document.txt"), "ciao ciao ocia");
+        CiaoFileResultCache<Long> sut = new CiaoFileResultCache<>(directory.resolve("cache"), Codec.int64());
+        CiaoWordReaderJob job = new CiaoWordReaderJob(document.toString());
+        assertEquals(Optional.empty(), sut.lookup(job));
+
+        // The document changes after the job has read it
+        Files.writeString(document, "ciao ciao abcd");
+        Files.setLastModifiedTime(document, FileTime.from(Instant.now().plusSeconds(60)));
+        sut.store(job, Map.of("acio", 3L));
+
+        assertEquals(Optional.empty(), sut.lookup(new CiaoWordReaderJob(document.toString())));
+    }
+
+    private JobResult run(Path documents, CiaoFileResultCache<Long> cache, Map<String, Long> result) {
+        return new JobScheduler<>(new CiaoWordDirectoryEmitter().withInputRoots(List.of(documents)),
+                AggregationStrategy.counting(),
+                collectOutput -> collectOutput.forEach(pair -> result.put(pair.getKey(), pair.getValue())))
+                .withJobCache(cache)
+                .runSteps();
+    }
+
+    private void assertCacheStatistics(long hits, long misses, JobResult jobResult) {
+        assertEquals(hits, jobResult.getJobCacheStatistics().getHits());
+        assertEquals(misses, jobResult.getJobCacheStatistics().getMisses());
+    }
+}
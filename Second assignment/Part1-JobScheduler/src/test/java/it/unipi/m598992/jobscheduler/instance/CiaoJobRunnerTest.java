@@ -0,0 +1,36 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.jobscheduler.JobResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CiaoJobRunnerTest {
+
+    @Test
+    void testManyRunsInTheSameJvm(@TempDir Path directory) throws IOException {
+        List<Path> inputRoots = List.of(Path.of("src/test/resources"));
+        try (CiaoJobRunner sut = new CiaoJobRunner()) {
+            JobResult sequential = sut.run(new CiaoJobConfig(inputRoots, directory.resolve("sequential.csv"))
+                    .withParallelism(1));
+            JobResult parallel = sut.run(new CiaoJobConfig(inputRoots, directory.resolve("parallel.csv"))
+                    .withParallelism(4)
+                    .withSplitSize(1000)
+                    .withMemoryBudget(100));
+
+            assertEquals(2, sequential.getNumberOfJobs());
+            assertEquals(68, parallel.getNumberOfJobs());
+            assertEquals(sequential.getNumberOfKeys(), parallel.getNumberOfKeys());
+            assertEquals(sequential.getNumberOfKeys(), Files.readAllLines(directory.resolve("parallel.csv")).size());
+            // the spilled keys are written in key order, the keys kept in memory aren't
+            assertEquals(Files.readAllLines(directory.resolve("sequential.csv")).stream().sorted().toList(),
+                    Files.readAllLines(directory.resolve("parallel.csv")));
+        }
+    }
+}
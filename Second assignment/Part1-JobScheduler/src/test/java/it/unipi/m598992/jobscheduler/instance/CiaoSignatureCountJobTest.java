@@ -0,0 +1,104 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.collect.LongIntCountCollectStrategy;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import it.unipi.m598992.jobscheduler.strategy.JobCache;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CiaoSignatureCountJobTest {
+
+    private final List<Path> files = List.of(Path.of("src/test/resources/Ulysses.txt"),
+            Path.of("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt"));
+
+    @Test
+    void testSignatureCountsMatchWordCounts() {
+        Map<String, Long> wordCounts = new HashMap<>();
+        new JobScheduler<>(() -> files.stream().<AJob<String, String>>map(CiaoWordReaderJob::new),
+                AggregationStrategy.counting(),
+                collectOutput -> collectOutput.forEach(pair -> wordCounts.put(pair.getKey(), pair.getValue())))
+                .runSteps();
+
+        CiaoSignatures signatures = new CiaoSignatures();
+        Map<String, Long> signatureCounts = new HashMap<>();
+        new JobScheduler<>(
+                () -> files.stream().<AJob<Long, Integer>>map(path -> new CiaoSignatureCountJob(path, signatures)),
+                AggregationStrategy.summingInt(),
+                collectOutput -> collectOutput.forEach(pair ->
+                        signatureCounts.put(signatures.toCIAO(pair.getKey()), pair.getValue().longValue())))
+                .withExecutor(ForkJoinPool.commonPool())
+                .withCollectStrategy(new LongIntCountCollectStrategy())
+                .runSteps();
+
+        assertEquals(wordCounts, signatureCounts);
+    }
+
+    @Test
+    void testSignaturesAreConvertedBackToCIAO() {
+        CiaoSignatures signatures = new CiaoSignatures();
+        for (String word : Stream.of("Sherlock", "zzzzzzzzzzzzz", "a", "Incomprehensibilities", "aaaaaaaaaaaaaz").toList()) {
+            long signature = signatures.signatureOf(word.toCharArray(), word.length());
+
+            assertEquals(new CiaoWordReaderJob("unused").toCIAO(word), signatures.toCIAO(signature));
+            assertTrue(word.length() > 13 ? signature < 0 : signature > 0);
+        }
+    }
+
+    @Test
+    void testAggregationsOtherThanSumsAreRejected() {
+        AggregationStrategy<Long, Integer, Integer> countingValues = new AggregationStrategy<>() {
+            @Override
+            public Integer createAccumulator() {
+                return 0;
+            }
+
+            @Override
+            public Integer accumulate(Integer accumulator, Integer value) {
+                return accumulator + 1;
+            }
+
+            @Override
+            public Integer combine(Integer left, Integer right) {
+                return left + right;
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> new LongIntCountCollectStrategy().open(countingValues));
+        new LongIntCountCollectStrategy().open(AggregationStrategy.summingInt()).close();
+    }
+
+    @Test
+    void testSignaturesAreNotCached() {
+        CiaoSignatures signatures = new CiaoSignatures();
+        JobCache<Long, Integer> jobCache = new JobCache<>() {
+            @Override
+            public Optional<Map<Long, Integer>> lookup(AJob<Long, ?> job) {
+                return Optional.empty();
+            }
+
+            @Override
+            public void store(AJob<Long, ?> job, Map<Long, Integer> partialAggregation) {
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> new JobScheduler<>(
+                () -> files.stream().<AJob<Long, Integer>>map(path -> new CiaoSignatureCountJob(path, signatures)),
+                AggregationStrategy.summingInt(),
+                collectOutput -> collectOutput.forEach(pair -> { }))
+                .withJobCache(jobCache)
+                .runSteps());
+    }
+}
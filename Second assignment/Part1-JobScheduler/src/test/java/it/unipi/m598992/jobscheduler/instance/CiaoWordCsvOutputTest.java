@@ -0,0 +1,51 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import it.unipi.m598992.auxfile.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CiaoWordCsvOutputTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<Pair<String, Long>> pairs = IntStream.range(0, 100_000)
+            .mapToObj(i -> new Pair<>(switch (i % 4) {
+                case 0 -> "acio" + i;
+                case 1 -> "àèìòù" + i;
+                case 2 -> "日本" + i;
+                default -> "😀" + i;
+            }, i % 7 == 0 ? -i * 1_000_000_007L : (long) i))
+            .toList();
+
+    private final String expected = pairs.stream()
+            .map(pair -> String.format("%s, %d\n", pair.getKey(), pair.getValue()))
+            .collect(Collectors.joining());
+
+    @Test
+    void testLinesMatchCsvFormat() throws IOException {
+        Path file = directory.resolve("count_anagrams.csv");
+        new CiaoWordCsvOutput<String, Long>(file, String::valueOf).output(pairs.stream());
+
+        assertEquals(expected, Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testParallelFormattingKeepsTheOrder() throws IOException {
+        Path file = directory.resolve("count_anagrams.csv");
+        Files.writeString(file, "a longer content to be truncated ".repeat(200_000));
+        new CiaoWordCsvOutput<String, Long>(file, String::valueOf).withFormattingThreads(4).output(pairs.stream());
+
+        assertEquals(expected, Files.readString(file, StandardCharsets.UTF_8));
+    }
+}
@@ -1,15 +1,26 @@
 package it.unipi.m598992.jobscheduler.instance;
 
 import it.unipi.m598992.auxfile.AJob;
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class CiaoWordDirectoryEmitterTest {
 
@@ -23,4 +34,63 @@ class CiaoWordDirectoryEmitterTest {
 
         assertEquals(2, emit.toList().size());
     }
+
+    @Test
+    void testLargeFilesAreSplit() {
+        Map<String, Long> unsplit = countWords(new CiaoWordDirectoryEmitter());
+        Map<String, Long> split = countWords(new CiaoWordDirectoryEmitter(1000));
+
+        System.setIn(new ByteArrayInputStream("src/test/resources".getBytes()));
+        // Ulysses.txt (66496 bytes) is divided in 67 splits, the other file is smaller than a split
+        assertEquals(68, new CiaoWordDirectoryEmitter(1000).emit().count());
+        assertEquals(unsplit, split);
+    }
+
+    @Test
+    void testRecursiveWalkWithPatterns(@TempDir Path directory) throws IOException {
+        Files.createDirectories(directory.resolve("a/b"));
+        for (String file : new String[]{"top.txt", "top.md", "a/one.txt", "a/skip.txt", "a/b/two.txt", "a/b/two.md"}) {
+            Files.writeString(directory.resolve(file), "ciao");
+        }
+
+        assertEquals(Set.of("top.txt"), findFiles(directory, new CiaoWordDirectoryEmitter()));
+        assertEquals(Set.of("top.txt", "a/one.txt", "a/skip.txt"),
+                findFiles(directory, new CiaoWordDirectoryEmitter().withRecursiveWalk(2)));
+        assertEquals(Set.of("top.txt", "a/one.txt", "a/b/two.txt"),
+                findFiles(directory, new CiaoWordDirectoryEmitter().withRecursiveWalk(Integer.MAX_VALUE)
+                        .withExcludePatterns("**/skip.txt")));
+        assertEquals(Set.of("a/b/two.txt", "a/b/two.md"),
+                findFiles(directory, new CiaoWordDirectoryEmitter().withRecursiveWalk(Integer.MAX_VALUE)
+                        .withIncludePatterns("a/b/*")));
+    }
+
+    @Test
+    void testLinkedFilesAreRead(@TempDir Path directory) throws IOException {
+        Path target = Files.writeString(directory.resolve("target.md"), "ciao");
+        try {
+            Files.createSymbolicLink(directory.resolve("link.txt"), target);
+        } catch (UnsupportedOperationException | IOException e) {
+            assumeTrue(false, "Symbolic links are not supported: " + e);
+        }
+
+        assertEquals(Set.of("link.txt"), findFiles(directory, new CiaoWordDirectoryEmitter()));
+    }
+
+    private Set<String> findFiles(Path directory, CiaoWordDirectoryEmitter emitter) {
+        System.setIn(new ByteArrayInputStream(directory.toString().getBytes()));
+        try (Stream<Path> files = emitter.findTxtFiles()) {
+            return files.map(file -> directory.relativize(file).toString().replace('\\', '/'))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private Map<String, Long> countWords(CiaoWordDirectoryEmitter emitter) {
+        System.setIn(new ByteArrayInputStream("src/test/resources".getBytes()));
+        Map<String, Long> result = new HashMap<>();
+        new JobScheduler<>(emitter, AggregationStrategy.counting(),
+                collectOutput -> collectOutput.forEach(pair -> result.put(pair.getKey(), pair.getValue())))
+                .withExecutor(ForkJoinPool.commonPool())
+                .runSteps();
+        return result;
+    }
 }
\ No newline at end of file
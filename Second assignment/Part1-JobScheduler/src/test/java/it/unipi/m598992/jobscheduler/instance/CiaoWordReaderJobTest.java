@@ -2,8 +2,14 @@ package it.unipi.m598992.jobscheduler.instance;
 
 
 import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.metrics.CacheStatistics;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -23,4 +29,32 @@ class CiaoWordReaderJobTest {
         assertTrue(result.stream().allMatch(pair -> pair.getKey().equals(sut.toCIAO(pair.getValue()))));
     }
 
+    @Test
+    public void testKeyCacheStatistics() {
+        CacheStatistics statistics = new CacheStatistics();
+        CiaoWordReaderJob job = new CiaoWordReaderJob(Path.of("src/test/resources/Ulysses.txt"), statistics);
+
+        long pairs;
+        try (Stream<Pair<String, String>> result = job.execute()) {
+            pairs = result.filter(pair -> pair.getKey().equals(sut.toCIAO(pair.getValue()))).count();
+        }
+
+        assertEquals(pairs, statistics.getHits() + statistics.getMisses());
+        assertTrue(statistics.getHits() > statistics.getMisses());
+    }
+
+    @Test
+    public void testTokenizationRules(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("rules.txt");
+        Files.writeString(file, "Word1 tabbed\tword long-winded café\r\nsmall big Café's, Rapid\nlast",
+                StandardCharsets.UTF_8);
+
+        List<String> words;
+        try (Stream<Pair<String, String>> pairs = new CiaoWordReaderJob(file).execute()) {
+            words = pairs.map(Pair::getValue).toList();
+        }
+
+        assertEquals(List.of("long", "winded", "small", "Rapid", "last"), words);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package it.unipi.m598992.jobscheduler.instance;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CiaoWordTokenizerTest {
+
+    @Test
+    void testWordsAcrossWindowsAreNotSplit() throws IOException {
+        // Windows of a few bytes: most of the words cross the border between two windows
+        Path smallFile = Path.of("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt");
+        for (int windowSize : new int[]{1, 3, 7}) {
+            assertEquals(readWords(smallFile, Integer.MAX_VALUE), readWords(smallFile, windowSize));
+        }
+        Path largeFile = Path.of("src/test/resources/Ulysses.txt");
+        assertEquals(readWords(largeFile, Integer.MAX_VALUE), readWords(largeFile, 4096));
+    }
+
+    @Test
+    void testSplitsReturnTheWordsOfTheWholeFile() throws IOException {
+        Path file = Path.of("src/test/resources/The_Adventures_of_Sherlock_Holmes.txt");
+        long size = Files.size(file);
+        List<String> wholeFile = readWords(file, Integer.MAX_VALUE);
+        // Split sizes putting the borders in every possible position of a word
+        for (int splitSize : new int[]{1, 2, 3, 5, 8, 13, 64, 100}) {
+            List<String> splits = new ArrayList<>();
+            for (long start = 0; start < size; start += splitSize) {
+                try (CiaoWordTokenizer tokenizer = new CiaoWordTokenizer(file, start, start + splitSize, 7)) {
+                    while (tokenizer.nextWord()) {
+                        splits.add(new String(tokenizer.word(), 0, tokenizer.wordLength()));
+                    }
+                }
+            }
+            assertEquals(wholeFile, splits);
+        }
+    }
+
+    @Test
+    void testClosedTokenizerStopsReading() throws IOException {
+        CiaoWordTokenizer sut = new CiaoWordTokenizer(Path.of("src/test/resources/Ulysses.txt"), 16);
+        sut.close();
+        sut.close();
+
+        assertFalse(sut.nextWord());
+    }
+
+    private List<String> readWords(Path file, int windowSize) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (CiaoWordTokenizer tokenizer = new CiaoWordTokenizer(file, windowSize)) {
+            while (tokenizer.nextWord()) {
+                words.add(new String(tokenizer.word(), 0, tokenizer.wordLength()));
+            }
+        }
+        return words;
+    }
+}
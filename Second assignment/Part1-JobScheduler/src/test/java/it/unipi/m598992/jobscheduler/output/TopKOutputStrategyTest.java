@@ -0,0 +1,86 @@
+package it.unipi.m598992.jobscheduler.output;
+
+import it.unipi.m598992.auxfile.Pair;
+import it.unipi.m598992.jobscheduler.JobScheduler;
+import it.unipi.m598992.jobscheduler.TestCorpus;
+import it.unipi.m598992.jobscheduler.strategy.AggregationStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static it.unipi.m598992.jobscheduler.TestCorpus.collectInto;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopKOutputStrategyTest {
+
+    private final List<Pair<String, Long>> pairs = List.of(new Pair<>("d", 1L), new Pair<>("b", 2L),
+            new Pair<>("c", 5L), new Pair<>("a", 2L));
+
+    @Test
+    void testTopKeysAreTheFirstKeysSortedByCount() {
+        Map<String, List<String>> sequential = TestCorpus.sequentialResult(TestCorpus.books(),
+                AggregationStrategy.toList());
+        List<String> expected = sequential.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<String, List<String>>>comparingInt(entry -> -entry.getValue().size())
+                        .thenComparing(Map.Entry::getKey))
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        List<Pair<String, List<String>>> top = new ArrayList<>();
+        new JobScheduler<>(TestCorpus.books(), AggregationStrategy.toList(),
+                TopKOutputStrategy.byCount(10, List::size, collectInto(top)))
+                .withPartitions(4)
+                .runSteps();
+
+        assertEquals(expected, top.stream().map(Pair::getKey).toList());
+        top.forEach(pair -> assertEquals(sequential.get(pair.getKey()), pair.getValue()));
+    }
+
+    @Test
+    void testKeysWithTheSameCountAreInKeyOrder() {
+        List<Pair<String, Long>> top = new ArrayList<>();
+        TopKOutputStrategy.byCount(3, Long::longValue, collectInto(top)).output(pairs.stream());
+        List<Pair<String, Long>> sorted = new ArrayList<>();
+        SortedOutputStrategy.<String, Long>byCount(Long::longValue, collectInto(sorted)).output(pairs.stream());
+
+        assertEquals(List.of("c", "a", "b"), top.stream().map(Pair::getKey).toList());
+        assertEquals(List.of("c", "a", "b", "d"), sorted.stream().map(Pair::getKey).toList());
+    }
+
+    @Test
+    void testAllPairsArePassedOnWhenKExceedsTheirNumber() {
+        List<Pair<String, Long>> top = new ArrayList<>();
+        TopKOutputStrategy.byCount(10, Long::longValue, collectInto(top)).output(pairs.stream());
+
+        assertEquals(List.of("c", "a", "b", "d"), top.stream().map(Pair::getKey).toList());
+    }
+
+    @Test
+    void testEmptyResultAndInvalidK() {
+        List<Pair<String, Long>> top = new ArrayList<>(List.of(new Pair<>("unchanged", 0L)));
+        TopKOutputStrategy.byCount(3, Long::longValue, collectInto(top)).output(Stream.empty());
+
+        assertEquals(1, top.size());
+        assertThrows(IllegalArgumentException.class,
+                () -> TopKOutputStrategy.<String, Long>byCount(0, Long::longValue, collectInto(top)));
+    }
+
+    @Test
+    void testPairsArePassedOnWithoutCopies() {
+        List<Pair<String, Long>> top = new ArrayList<>();
+        TopKOutputStrategy.byCount(2, Long::longValue, collectInto(top)).output(pairs.stream());
+        List<Pair<String, Long>> byKey = new ArrayList<>();
+        SortedOutputStrategy.<String, Long>byKey(collectInto(byKey)).output(pairs.stream());
+
+        assertEquals(List.of(pairs.get(2), pairs.get(3)), top);
+        assertSame(pairs.get(3), byKey.get(0));
+        assertEquals(List.of("a", "b", "c", "d"), byKey.stream().map(Pair::getKey).toList());
+    }
+}